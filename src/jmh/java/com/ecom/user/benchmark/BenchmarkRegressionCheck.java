@@ -0,0 +1,84 @@
+package com.ecom.user.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and exits with status 1 when any benchmark present in both got worse
+ * by more than the tolerance. Throughput scores regress when they drop; time-per-op scores when they rise.
+ *
+ * <pre>
+ * BenchmarkRegressionCheck baseline.json current.json [tolerancePercent]
+ * </pre>
+ */
+public final class BenchmarkRegressionCheck {
+
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10.0;
+
+    private BenchmarkRegressionCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkRegressionCheck <baseline.json> <current.json> [tolerancePercent]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT;
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : new TreeMap<>(current).entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s %.3f %s%n", entry.getKey(), entry.getValue().score(),
+                        entry.getValue().unit());
+                continue;
+            }
+            Result after = entry.getValue();
+            double change = (after.score() - before.score()) / before.score() * 100.0;
+            double worsening = after.higherIsBetter() ? -change : change;
+            boolean regressed = worsening > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), before.score(), after.score(), after.unit(), change);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, tolerance);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf("[") < 0 ? "[" : ",").append(param.getKey()).append('=')
+                        .append(param.getValue().asText());
+            }
+            if (key.indexOf("[") >= 0) {
+                key.append(']');
+            }
+            JsonNode metric = run.path("primaryMetric");
+            results.put(key.toString(), new Result(metric.path("score").asDouble(),
+                    metric.path("scoreUnit").asText(), "thrpt".equals(run.path("mode").asText())));
+        }
+        return results;
+    }
+
+    private record Result(double score, String unit, boolean higherIsBetter) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecom.user.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cost of one failed lookup from throw to serialized body. {@code stackDepth} stands in for the frames
+ * between the servlet container and the service, which a stack trace has to walk. Run with
+ * {@code -prof gc} to compare {@code gc.alloc.rate.norm}, the bytes allocated per failed request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorResponseBenchmark {
+
+    private static final String MESSAGE = "User not found with email: unknown@example.com";
+    private static final String PATH = "/api/users/email/unknown@example.com";
+
+    @Param({"20", "120"})
+    private int stackDepth;
+
+    private ObjectMapper objectMapper;
+    private GlobalExceptionHandler handler;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        handler = new GlobalExceptionHandler();
+    }
+
+    /** The previous handler: an exception with a stack trace and a HashMap body with a formatted timestamp. */
+    @Benchmark
+    public byte[] mapBodyWithStackTrace() throws JsonProcessingException {
+        RuntimeException ex = throwFrom(stackDepth, () -> new RuntimeException(MESSAGE));
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now().toString());
+        error.put("status", HttpStatus.NOT_FOUND.value());
+        error.put("error", "Not Found");
+        error.put("message", ex.getMessage());
+        return objectMapper.writeValueAsBytes(error);
+    }
+
+    @Benchmark
+    public byte[] problemDetailWithoutStackTrace() throws JsonProcessingException {
+        UserNotFoundException ex = throwFrom(stackDepth, () -> new UserNotFoundException(MESSAGE));
+        ProblemDetail problem = handler.handleUserServiceException(ex);
+        // What Spring adds before writing the body
+        problem.setInstance(URI.create(PATH));
+        return objectMapper.writeValueAsBytes(problem);
+    }
+
+    private static <T extends RuntimeException> T throwFrom(int depth, Supplier<T> exception) {
+        try {
+            descend(depth, exception);
+            throw new AssertionError();
+        } catch (RuntimeException ex) {
+            @SuppressWarnings("unchecked")
+            T thrown = (T) ex;
+            return thrown;
+        }
+    }
+
+    private static void descend(int depth, Supplier<? extends RuntimeException> exception) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        descend(depth - 1, exception);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecom.user.repository;
+
+import com.ecom.user.UserServiceApplication;
+import com.ecom.user.dto.UserResponse;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository lookups against the in-memory H2 database, without the web layer or the user cache.
+ * The Hibernate and JDBC paths take several seconds to compile, so warmup is longer than elsewhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 4, time = 5)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRepositoryBenchmark {
+
+    @Param({"10000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private long firstId;
+    private UserPageCursor deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:userdb-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.sql.init.mode=never",
+                        "--spring.jpa.show-sql=false",
+                        "--eureka.client.enabled=false",
+                        "--logging.level.root=WARN");
+        userRepository = context.getBean(UserRepository.class);
+
+        List<User> batch = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            batch.add(new User(null, "bench" + i + "@example.com", "encodedPassword", "Bench", "User" + i, Role.BUYER));
+        }
+        firstId = userRepository.saveAll(batch).get(0).getId();
+        // The listing is newest first, so a cursor on one of the oldest users points at the last pages
+        User oldest = userRepository.findById(firstId + 100).orElseThrow();
+        deepCursor = new UserPageCursor(oldest.getCreatedAt(), oldest.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return userRepository.findById(firstId + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public Optional<User> findByNormalizedEmail() {
+        return userRepository.findByNormalizedEmail("bench" + ThreadLocalRandom.current().nextInt(users) + "@example.com");
+    }
+
+    @Benchmark
+    public boolean existsByNormalizedEmail() {
+        return userRepository.existsByNormalizedEmail("bench" + ThreadLocalRandom.current().nextInt(users) + "@example.com");
+    }
+
+    @Benchmark
+    public List<UserResponse> listFirstPage() {
+        return userRepository.findPage(null, null, null, null, 50);
+    }
+
+    /**
+     * Should match {@link #listFirstPage()}: the cursor is an index seek, not an offset.
+     */
+    @Benchmark
+    public List<UserResponse> listDeepPage() {
+        return userRepository.findPage(null, null, null, deepCursor, 50);
+    }
+}
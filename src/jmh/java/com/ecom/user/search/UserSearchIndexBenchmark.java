@@ -0,0 +1,82 @@
+package com.ecom.user.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency over 100k synthetic users drawn from 200 first and 500 last names, so common prefixes
+ * match thousands of users. Every tenth user is named John, so one term has 10k postings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSearchIndexBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int LIMIT = 20;
+
+    private UserSearchIndex index;
+    private boolean renamed;
+
+    @Setup
+    public void setUp() {
+        index = new UserSearchIndex(null, new SimpleMeterRegistry());
+        for (int id = 1; id <= USERS; id++) {
+            String firstName = id % 10 == 0 ? "john" : "first" + (id % 200);
+            String lastName = "last" + (id % 500);
+            index.add(id, firstName + "." + lastName + id + "@example.com", firstName, lastName);
+        }
+    }
+
+    @Benchmark
+    public List<Long> singleLetterPrefix() {
+        return index.search("f", LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> namePrefix() {
+        return index.search("first12", LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> firstAndLastName() {
+        return index.search("first12 last12", LIMIT);
+    }
+
+    /** No user has this combination, so every candidate of both words is checked. */
+    @Benchmark
+    public List<Long> firstAndLastNameWithoutMatch() {
+        return index.search("first12 last37", LIMIT);
+    }
+
+    /** The single letter starts about 100k distinct terms, every email's second word among them. */
+    @Benchmark
+    public List<Long> lastNameAndSingleLetter() {
+        return index.search("last12 f", LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> emailPrefix() {
+        return index.search("first12.last312", LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> noMatch() {
+        return index.search("nobody", LIMIT);
+    }
+
+    /** Moves one user in and out of the 10k postings of {@code john}, each move copying that array. */
+    @Benchmark
+    public void updateCommonName() {
+        String from = renamed ? "jon" : "john";
+        String to = renamed ? "john" : "jon";
+        renamed = !renamed;
+        index.update(10, "john.last10@example.com", from, "last10", "john.last10@example.com", to, "last10");
+    }
+}
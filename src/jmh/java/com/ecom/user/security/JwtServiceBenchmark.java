@@ -0,0 +1,73 @@
+package com.ecom.user.security;
+
+import com.ecom.user.model.Role;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final TokenUser USER =
+            new TokenUser(1L, "alice.johnson@example.com", Role.BUYER, 0L, "Alice", "Johnson");
+
+    @Param({"HMAC", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JwtService jwtService;
+    private VerifiedTokenCache tokenCache;
+    private TokenRevocationIndex revocationIndex;
+    private String token;
+    private String refreshToken;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "signatureAlgorithm", algorithm);
+        ReflectionTestUtils.setField(jwtService, "secretKey",
+                "ecom-research-jwt-secret-key-that-is-long-enough-for-hmac-sha256");
+        ReflectionTestUtils.setField(jwtService, "keyId", "primary");
+        ReflectionTestUtils.setField(jwtService, "expiration", 900000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604800000L);
+        jwtService.init();
+        token = jwtService.generateToken(USER);
+        refreshToken = jwtService.generateRefreshToken(USER);
+        tokenCache = new VerifiedTokenCache(new SimpleMeterRegistry(), 1000);
+        revocationIndex = new TokenRevocationIndex(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(USER);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token);
+    }
+
+    @Benchmark
+    public Claims verifyThroughTokenCache() {
+        return tokenCache.getVerifiedClaims(token, jwtService::parseSignedClaims, jwtService::isVerificationKey);
+    }
+
+    /**
+     * The work behind {@code /api/users/token/refresh}: verify, revoke the presented token and sign a new pair.
+     */
+    @Benchmark
+    public String rotateRefreshToken() {
+        Claims claims = jwtService.parseRefreshToken(refreshToken);
+        revocationIndex.revoke(claims.getId(), claims.getExpiration());
+        TokenUser user = TokenUser.from(claims);
+        refreshToken = jwtService.generateRefreshToken(user);
+        return jwtService.generateToken(user);
+    }
+}
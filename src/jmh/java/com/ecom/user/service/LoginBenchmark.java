@@ -0,0 +1,118 @@
+package com.ecom.user.service;
+
+import com.ecom.user.UserServiceApplication;
+import com.ecom.user.dto.LoginRequest;
+import com.ecom.user.dto.LoginResponse;
+import com.ecom.user.exception.InvalidCredentialsException;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import com.ecom.user.repository.UserRepository;
+import com.ecom.user.security.RegisteredEmailFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The login path end to end below the controller, with BCrypt at strength 4 so the lookups and the
+ * timing equalization are visible next to the hash. A failed login should take about as long for an
+ * unknown email as for a wrong password; {@code emailFilterProbe} is what the unknown email costs in CPU.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 4, time = 5)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({"10000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private RegisteredEmailFilter registeredEmails;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:userdb-login-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.sql.init.mode=never",
+                        "--spring.jpa.show-sql=false",
+                        "--eureka.client.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--password-hashing.bcrypt.strength=4",
+                        "--login-throttle.per-ip.limit=65535",
+                        "--login-throttle.per-email.limit=65535");
+        userService = context.getBean(UserService.class);
+        registeredEmails = context.getBean(RegisteredEmailFilter.class);
+        while (!registeredEmails.isReady()) {
+            Thread.sleep(10);
+        }
+
+        String encoded = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<User> batch = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String email = "bench" + i + "@example.com";
+            batch.add(new User(null, email, encoded, "Bench", "User" + i, Role.BUYER));
+            registeredEmails.add(email);
+        }
+        context.getBean(UserRepository.class).saveAll(batch);
+
+        // Unknown emails wait out the running average of real password checks; prime it the way
+        // steady login traffic would, rather than with the first cold, unoptimized compares
+        for (int i = 0; i < 500; i++) {
+            validLogin();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public LoginResponse validLogin() {
+        return userService.login(new LoginRequest(registeredEmail(), PASSWORD), "10.0.0.1");
+    }
+
+    @Benchmark
+    public Object wrongPassword() {
+        return failedLogin(new LoginRequest(registeredEmail(), "wrong-password"));
+    }
+
+    @Benchmark
+    public Object unknownEmail() {
+        return failedLogin(new LoginRequest(unknownEmailAddress(), PASSWORD));
+    }
+
+    @Benchmark
+    public boolean emailFilterProbe() {
+        return registeredEmails.mightContain(unknownEmailAddress());
+    }
+
+    private Object failedLogin(LoginRequest request) {
+        try {
+            return userService.login(request, "10.0.0.1");
+        } catch (InvalidCredentialsException e) {
+            return e;
+        }
+    }
+
+    private String registeredEmail() {
+        return "bench" + ThreadLocalRandom.current().nextInt(users) + "@example.com";
+    }
+
+    private String unknownEmailAddress() {
+        return "nobody" + ThreadLocalRandom.current().nextInt(users) + "@example.com";
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecom.user.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load generator: requests are issued on a fixed schedule whether or not earlier ones have
+ * completed, and each latency is measured from the request's intended start time. A stalled server
+ * therefore shows up as queueing delay in the percentiles instead of silently lowering the send rate
+ * (coordinated omission).
+ */
+final class OpenLoopLoadGenerator {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<Endpoint> endpoints;
+    private final int totalWeight;
+
+    OpenLoopLoadGenerator(List<Endpoint> endpoints) {
+        this.endpoints = List.copyOf(endpoints);
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+    }
+
+    /**
+     * Sends {@code ratePerSecond} requests per second for {@code duration}, picking each request's
+     * endpoint by weight, and returns the latency distribution of every endpoint.
+     */
+    Map<String, EndpointResult> run(int ratePerSecond, Duration duration) throws Exception {
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        Map<String, LongAdder> errors = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            recorders.put(endpoint.name(), new Recorder(3));
+            errors.put(endpoint.name(), new LongAdder());
+        }
+
+        long period = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+
+        for (long intendedStart = start; intendedStart < end; intendedStart += period) {
+            long delay;
+            while ((delay = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Endpoint endpoint = pick();
+            Recorder recorder = recorders.get(endpoint.name());
+            LongAdder endpointErrors = errors.get(endpoint.name());
+            long scheduledAt = intendedStart;
+            pending.add(endpoint.request().get().whenComplete((response, failure) -> {
+                recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt));
+                if (failure != null || response.statusCode() >= 400) {
+                    endpointErrors.increment();
+                }
+            }).exceptionally(failure -> null));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .get(DRAIN_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        Map<String, EndpointResult> results = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            results.put(endpoint.name(), new EndpointResult(endpoint,
+                    recorders.get(endpoint.name()).getIntervalHistogram(),
+                    errors.get(endpoint.name()).sum()));
+        }
+        return results;
+    }
+
+    private Endpoint pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            ticket -= endpoint.weight();
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Endpoint weights do not add up");
+    }
+
+    /**
+     * One request type in the mix. The request supplier is only ever called from the scheduling
+     * thread, so it must return quickly and leave the actual I/O to the returned future.
+     */
+    record Endpoint(String name, int weight, Duration p99Budget,
+                    Supplier<CompletableFuture<HttpResponse<Void>>> request) {
+    }
+
+    /**
+     * Latencies of one endpoint in microseconds, including any time spent queued behind the schedule.
+     */
+    record EndpointResult(Endpoint endpoint, Histogram latencies, long errors) {
+
+        Duration percentile(double percentile) {
+            return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latencies.getValueAtPercentile(percentile)));
+        }
+
+        boolean withinBudget() {
+            return errors == 0 && percentile(99.0).compareTo(endpoint.p99Budget()) <= 0;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.ecom.user.loadtest;
+
+import com.ecom.user.dto.LoginRequest;
+import com.ecom.user.dto.LoginResponse;
+import com.ecom.user.dto.RegisterRequest;
+import com.ecom.user.dto.UserImportResult;
+import com.ecom.user.dto.UserImportRow;
+import com.ecom.user.loadtest.OpenLoopLoadGenerator.Endpoint;
+import com.ecom.user.loadtest.OpenLoopLoadGenerator.EndpointResult;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import com.ecom.user.service.UserImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives a production-like request mix against the running application and fails when any endpoint
+ * misses its p99 latency budget or returns errors. Run with {@code mvn -Pload-test test}; rate,
+ * duration and budgets can be overridden with {@code -Dloadtest.*} system properties.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "eureka.client.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Every simulated client shares the loopback address
+        "login-throttle.per-ip.limit=65535"
+})
+class UserServiceLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 1000);
+    private static final int RATE = Integer.getInteger("loadtest.rate", 50);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 15));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Path REPORT_DIR = Path.of("target", "load-test");
+    private static final String PASSWORD = "load-test-password";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicInteger registrations = new AtomicInteger();
+    private List<User> users;
+    private String token;
+
+    @Test
+    void userEndpoints_ShouldMeetTheirP99Budgets() throws Exception {
+        seedUsers();
+        token = login(users.get(0).getEmail());
+
+        OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(List.of(
+                endpoint("get-by-id", 70, 50, () -> get("/api/users/" + randomUser().getId())),
+                endpoint("get-by-email", 15, 50, () -> get("/api/users/email/" + randomUser().getEmail())),
+                endpoint("login", 10, 500, () -> post("/api/users/login",
+                        new LoginRequest(randomUser().getEmail(), PASSWORD))),
+                endpoint("register", 3, 500, () -> post("/api/users/register",
+                        new RegisterRequest("load-" + registrations.incrementAndGet() + "@example.com",
+                                PASSWORD, "Load", "Test", Role.BUYER))),
+                endpoint("update", 2, 100, () -> put("/api/users/" + randomUser().getId(),
+                        new RegisterRequest(null, null, "Updated" + registrations.get(), null, null)))));
+
+        generator.run(RATE, WARMUP);
+        Map<String, EndpointResult> results = generator.run(RATE, DURATION);
+        report(results);
+
+        assertAll(results.values().stream().map(result -> (Executable) () -> assertTrue(result.withinBudget(),
+                () -> String.format("%s: p99 %d ms (budget %d ms), %d errors", result.endpoint().name(),
+                        result.percentile(99.0).toMillis(), result.endpoint().p99Budget().toMillis(),
+                        result.errors()))));
+    }
+
+    /**
+     * Seeds through the bulk import rather than the repository, so the users also reach the login email
+     * filter and the change outbox like any other new user.
+     */
+    private void seedUsers() throws IOException {
+        String encoded = passwordEncoder.encode(PASSWORD);
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            UserImportRow row = new UserImportRow("load-user" + i + "@example.com", null, encoded, "Load", "User" + i,
+                    Role.BUYER);
+            ndjson.append(objectMapper.writeValueAsString(row)).append('\n');
+        }
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        userImportService.importUsers(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+                UserImportService.Format.NDJSON, results);
+
+        users = new ArrayList<>(USERS);
+        for (String line : results.toString(StandardCharsets.UTF_8).split("\n")) {
+            UserImportResult result = objectMapper.readValue(line, UserImportResult.class);
+            assertEquals(UserImportResult.Status.CREATED, result.getStatus(), () -> "seeding failed: " + line);
+            users.add(new User(result.getId(), result.getEmail(), encoded, "Load", null, Role.BUYER));
+        }
+    }
+
+    private String login(String email) throws Exception {
+        HttpResponse<byte[]> response = client.send(
+                request("/api/users/login").POST(json(new LoginRequest(email, PASSWORD))).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), LoginResponse.class).getToken();
+    }
+
+    private User randomUser() {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+
+    private static Endpoint endpoint(String name, int weight, long defaultBudgetMillis,
+                                     Supplier<CompletableFuture<HttpResponse<Void>>> request) {
+        Duration budget = Duration.ofMillis(Long.getLong("loadtest.p99." + name, defaultBudgetMillis));
+        return new Endpoint(name, weight, budget, request);
+    }
+
+    private CompletableFuture<HttpResponse<Void>> get(String path) {
+        return send(request(path).GET());
+    }
+
+    private CompletableFuture<HttpResponse<Void>> post(String path, Object body) {
+        return send(request(path).POST(json(body)));
+    }
+
+    private CompletableFuture<HttpResponse<Void>> put(String path, Object body) {
+        return send(request(path).PUT(json(body)));
+    }
+
+    private CompletableFuture<HttpResponse<Void>> send(HttpRequest.Builder request) {
+        return client.sendAsync(request.header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report(Map<String, EndpointResult> results) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        StringBuilder summary = new StringBuilder(String.format("%nLoad test: %d req/s for %ds%n%-14s %8s %7s %8s %8s %8s %8s %8s %8s  %s%n",
+                RATE, DURATION.toSeconds(), "endpoint", "count", "errors", "p50", "p90", "p99", "p99.9", "max",
+                "budget", "result"));
+        for (EndpointResult result : results.values()) {
+            summary.append(String.format("%-14s %8d %7d %6.1fms %6.1fms %6.1fms %6.1fms %6.1fms %6dms  %s%n",
+                    result.endpoint().name(), result.latencies().getTotalCount(), result.errors(),
+                    millis(result, 50.0), millis(result, 90.0), millis(result, 99.0), millis(result, 99.9),
+                    millis(result, 100.0), result.endpoint().p99Budget().toMillis(),
+                    result.withinBudget() ? "PASS" : "FAIL"));
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(REPORT_DIR.resolve(result.endpoint().name() + ".hgrm")))) {
+                result.latencies().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        Files.writeString(REPORT_DIR.resolve("summary.txt"), summary);
+        System.out.println(summary);
+    }
+
+    private static double millis(EndpointResult result, double percentile) {
+        return result.latencies().getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecom.user.cache;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the loader and everyone
+ * arriving while it is in flight waits for its result, or its exception. Keys are tracked in a
+ * {@link ConcurrentHashMap}, so loads of different keys never contend.
+ * <p>
+ * Callers pass the cache's invalidation epoch. A caller only joins a load started in the same epoch;
+ * after an invalidation it loads on its own, since the running load may have read the old row.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter collapsed;
+
+    SingleFlight(Counter collapsed) {
+        this.collapsed = collapsed;
+    }
+
+    V load(K key, long epoch, Function<? super K, ? extends V> loader) {
+        Flight<V> own = new Flight<>(epoch);
+        Flight<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            if (running.epoch != epoch) {
+                return loader.apply(key);
+            }
+            collapsed.increment();
+            return running.join();
+        }
+        try {
+            V value = loader.apply(key);
+            inFlight.remove(key, own);
+            own.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, own);
+            own.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static final class Flight<V> {
+
+        private final long epoch;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        Flight(long epoch) {
+            this.epoch = epoch;
+        }
+
+        V join() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                // Rethrow what the loader threw, e.g. a database error, rather than the wrapper
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.ecom.user.cache;
+
+import com.ecom.user.dto.UserResponse;
+import com.ecom.user.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of {@code UserRepository}: id to {@link UserResponse}, plus email to id.
+ * Emails are keyed in their {@link User#normalizeEmail(String) normalized} form, like the lookups behind them.
+ * Misses are not cached, so a newly registered user is visible immediately.
+ * <p>
+ * Writers call {@link #invalidate} after the change is stored. Every invalidation bumps an epoch;
+ * a load that overlapped an invalidation is not cached, so a slow read cannot put back data that a
+ * concurrent update just replaced.
+ * <p>
+ * Concurrent misses for the same id or email share one load, so a cold popular user costs one query
+ * rather than one per request.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<Long, UserResponse> usersById;
+    private final Cache<String, Long> idsByEmail;
+    private final Timer loadByIdTimer;
+    private final Timer loadByEmailTimer;
+    private final SingleFlight<Long, Optional<UserResponse>> loadsById;
+    private final SingleFlight<String, Optional<UserResponse>> loadsByEmail;
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${users.cache.maximum-size:100000}") long maximumSize,
+                     @Value("${users.cache.ttl:10m}") Duration ttl) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByEmail, "users.by-email");
+        Gauge.builder("users.cache.hit.ratio", usersById, cache -> cache.stats().hitRate())
+                .tag("cache", "users.by-id")
+                .register(meterRegistry);
+        Gauge.builder("users.cache.hit.ratio", idsByEmail, cache -> cache.stats().hitRate())
+                .tag("cache", "users.by-email")
+                .register(meterRegistry);
+        this.loadByIdTimer = Timer.builder("users.cache.load")
+                .tag("key", "id")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.loadByEmailTimer = Timer.builder("users.cache.load")
+                .tag("key", "email")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.loadsById = new SingleFlight<>(collapsedLoads(meterRegistry, "id"));
+        this.loadsByEmail = new SingleFlight<>(collapsedLoads(meterRegistry, "email"));
+    }
+
+    private static Counter collapsedLoads(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("users.cache.load.collapsed")
+                .description("Cache misses answered by a load already in flight for the same key")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    public Optional<UserResponse> getById(Long id, Function<Long, Optional<UserResponse>> loader) {
+        UserResponse cached = usersById.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long epoch = invalidationEpoch.get();
+        Optional<UserResponse> loaded = loadsById.load(id, epoch,
+                key -> loadByIdTimer.record(() -> loader.apply(key)));
+        loaded.ifPresent(user -> putIfNotInvalidated(user, epoch));
+        return loaded;
+    }
+
+    public Optional<UserResponse> getByEmail(String email, Function<String, Optional<UserResponse>> loader) {
+        Optional<UserResponse> cached = peekByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long epoch = invalidationEpoch.get();
+        Optional<UserResponse> loaded = loadsByEmail.load(User.normalizeEmail(email), epoch,
+                key -> loadByEmailTimer.record(() -> loader.apply(key)));
+        loaded.ifPresent(user -> putIfNotInvalidated(user, epoch));
+        return loaded;
+    }
+
+    /**
+     * The cached user, without loading it on a miss.
+     */
+    public Optional<UserResponse> peekById(Long id) {
+        return Optional.ofNullable(usersById.getIfPresent(id));
+    }
+
+    public Optional<UserResponse> peekByEmail(String email) {
+        String key = User.normalizeEmail(email);
+        Long id = idsByEmail.getIfPresent(key);
+        if (id == null) {
+            return Optional.empty();
+        }
+        UserResponse cached = usersById.getIfPresent(id);
+        return cached != null && key.equals(User.normalizeEmail(cached.getEmail()))
+                ? Optional.of(cached)
+                : Optional.empty();
+    }
+
+    /**
+     * Returns every cached user among {@code ids} and loads only the misses, in one call to {@code loader}.
+     * Ids that neither the cache nor the loader know about are absent from the result.
+     */
+    public Map<Long, UserResponse> getAllById(Collection<Long> ids,
+                                              Function<Set<Long>, Map<Long, UserResponse>> loader) {
+        Map<Long, UserResponse> result = new HashMap<>(usersById.getAllPresent(ids));
+        if (result.size() == ids.size()) {
+            return result;
+        }
+        Set<Long> misses = new HashSet<>(ids);
+        misses.removeAll(result.keySet());
+
+        long epoch = invalidationEpoch.get();
+        Map<Long, UserResponse> loaded = loadByIdTimer.record(() -> loader.apply(misses));
+        loaded.values().forEach(user -> putIfNotInvalidated(user, epoch));
+        result.putAll(loaded);
+        return result;
+    }
+
+    public void put(UserResponse user) {
+        usersById.put(user.getId(), user);
+        idsByEmail.put(User.normalizeEmail(user.getEmail()), user.getId());
+    }
+
+    /**
+     * Evicts the user and every email that may map to it, e.g. both the old and the new address
+     * after an email change.
+     */
+    public void invalidate(Long id, String... emails) {
+        invalidationEpoch.incrementAndGet();
+        UserResponse cached = usersById.getIfPresent(id);
+        usersById.invalidate(id);
+        if (cached != null) {
+            idsByEmail.invalidate(User.normalizeEmail(cached.getEmail()));
+        }
+        for (String email : emails) {
+            if (email != null) {
+                idsByEmail.invalidate(User.normalizeEmail(email));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        invalidationEpoch.incrementAndGet();
+        usersById.invalidateAll();
+        idsByEmail.invalidateAll();
+    }
+
+    private void putIfNotInvalidated(UserResponse user, long epoch) {
+        if (invalidationEpoch.get() != epoch) {
+            return;
+        }
+        put(user);
+        // An invalidation may have slipped in between the check and the put; undo rather than serve stale data.
+        if (invalidationEpoch.get() != epoch) {
+            usersById.invalidate(user.getId());
+            idsByEmail.invalidate(User.normalizeEmail(user.getEmail()));
+        }
+    }
+}
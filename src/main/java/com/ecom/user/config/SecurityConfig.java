@@ -1,38 +1,90 @@
 package com.ecom.user.config;
 
+import com.ecom.user.security.CalibratedBCryptPasswordEncoder;
+import com.ecom.user.security.JwtAuthenticationFilter;
+import com.ecom.user.security.JwtService;
+import com.ecom.user.security.TokenRevocationIndex;
+import com.ecom.user.security.VerifiedTokenCache;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtService jwtService,
+                                                   VerifiedTokenCache verifiedTokenCache,
+                                                   TokenRevocationIndex tokenRevocationIndex) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .headers(headers -> headers.frameOptions(frame -> frame.disable()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Long-poll and SSE responses are written in an async dispatch of an already authorised request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/users/register", "/api/users/login").permitAll()
-                        .requestMatchers("/api/users/**").permitAll()
+                        .requestMatchers("/api/users/token/refresh", "/api/users/token/revoke").permitAll()
+                        // Imported rows can set any role and a ready-made password hash
+                        .requestMatchers("/api/users/import").hasRole("ADMIN")
+                        // Every user's email and role, for analytics jobs and downstream services rather than end users
+                        .requestMatchers("/api/users/export").hasRole("ADMIN")
+                        .requestMatchers("/api/users/changes", "/api/users/changes/**").hasRole("ADMIN")
+                        .requestMatchers("/api/users/**").authenticated()
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/swagger-ui.html").permitAll()
                         .requestMatchers("/v3/api-docs/**").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
                         .anyRequest().authenticated()
-                );
+                )
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService, verifiedTokenCache, tokenRevocationIndex),
+                        UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
 
+    /**
+     * New hashes are written as {@code {id}hash} using the configured algorithm; stored hashes without a
+     * prefix (including the seed data) are verified as BCrypt. A hash whose algorithm or cost differs from
+     * the current settings reports {@code upgradeEncoding} and is replaced on the next successful login; with
+     * a calibrated BCrypt strength, costs within {@code upgrade-tolerance} below it are left alone.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password-hashing.algorithm:bcrypt}") String algorithm,
+                                           @Value("${password-hashing.bcrypt.strength:0}") int bcryptStrength,
+                                           @Value("${password-hashing.bcrypt.target-time:250ms}") Duration targetTime,
+                                           @Value("${password-hashing.bcrypt.min-strength:10}") int minStrength,
+                                           @Value("${password-hashing.bcrypt.max-strength:14}") int maxStrength,
+                                           @Value("${password-hashing.bcrypt.upgrade-tolerance:1}") int upgradeTolerance,
+                                           @Value("${password-hashing.argon2.memory-kib:19456}") int argon2Memory,
+                                           @Value("${password-hashing.argon2.iterations:2}") int argon2Iterations,
+                                           @Value("${password-hashing.argon2.parallelism:1}") int argon2Parallelism) {
+        CalibratedBCryptPasswordEncoder bcrypt = bcryptStrength > 0
+                ? new CalibratedBCryptPasswordEncoder(bcryptStrength)
+                : CalibratedBCryptPasswordEncoder.calibrate(targetTime, minStrength, maxStrength, upgradeTolerance);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2Memory, argon2Iterations));
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return passwordEncoder;
     }
 }
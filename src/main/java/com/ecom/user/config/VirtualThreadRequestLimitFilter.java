@@ -0,0 +1,92 @@
+package com.ecom.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the requests in progress while request handling runs on virtual threads. Tomcat's platform-thread
+ * pool bounds them to {@code server.tomcat.threads.max}; virtual threads do not, so without this every
+ * request is admitted and waits in the connection pool or the password hashing queue until the client
+ * gives up. A request that gets no permit within {@code acquire-timeout} is answered with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header before any work is done.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadRequestLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+    private final Duration retryAfter;
+    private final ObjectMapper objectMapper;
+    private final Counter rejectedCounter;
+
+    public VirtualThreadRequestLimitFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                           @Value("${virtual-threads.max-concurrent-requests:200}") int maxConcurrentRequests,
+                                           @Value("${virtual-threads.acquire-timeout:100ms}") Duration acquireTimeout,
+                                           @Value("${virtual-threads.retry-after:1s}") Duration retryAfter) {
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.acquireTimeout = acquireTimeout;
+        this.retryAfter = retryAfter;
+        this.objectMapper = objectMapper;
+        this.rejectedCounter = Counter.builder("http.server.requests.limited")
+                .description("Requests rejected because too many were already in progress")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.in.progress", permits,
+                        p -> maxConcurrentRequests - p.availablePermits())
+                .description("Requests holding a permit of the virtual-thread request limit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedCounter.increment();
+            reject(response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                ProblemDetail.forStatusAndDetail(status, "Too many requests in progress; retry later"));
+    }
+}
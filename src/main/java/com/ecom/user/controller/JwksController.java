@@ -0,0 +1,39 @@
+package com.ecom.user.controller;
+
+import com.ecom.user.security.JwkSetDocument;
+import com.ecom.user.security.JwtService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/**
+ * Serves the public signing keys so gateways and other services can verify tokens locally. The body is
+ * rendered once per key rotation; a matching {@code If-None-Match} gets {@code 304 Not Modified}.
+ */
+@RestController
+public class JwksController {
+
+    static final String JWK_SET_MEDIA_TYPE = "application/jwk-set+json";
+
+    private final JwtService jwtService;
+    private final CacheControl cacheControl;
+
+    public JwksController(JwtService jwtService, @Value("${jwt.jwks.max-age:10m}") Duration maxAge) {
+        this.jwtService = jwtService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = JWK_SET_MEDIA_TYPE)
+    public ResponseEntity<String> jwks() {
+        JwkSetDocument jwkSet = jwtService.getJwkSet();
+        // Spring answers 304 itself when the request's If-None-Match matches this ETag
+        return ResponseEntity.ok()
+                .eTag(jwkSet.etag())
+                .cacheControl(cacheControl)
+                .body(jwkSet.json());
+    }
+}
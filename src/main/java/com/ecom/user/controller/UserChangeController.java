@@ -0,0 +1,144 @@
+package com.ecom.user.controller;
+
+import com.ecom.user.dto.UserChangeBatch;
+import com.ecom.user.dto.UserChangeEventResponse;
+import com.ecom.user.service.UserChangePublisher;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Change feed for services that cache users. Consumers remember the offset of the last event they applied
+ * and resume from it, either by long-polling or over a Server-Sent Events stream whose event ids are the
+ * offsets, so a reconnecting {@code EventSource} resumes through {@code Last-Event-ID}. Without an offset
+ * both start at the current end of the feed.
+ */
+@RestController
+@RequestMapping("/api/users/changes")
+public class UserChangeController {
+
+    static final int MAX_BATCH_SIZE = 500;
+    static final int MAX_WAIT_SECONDS = 60;
+
+    private final UserChangePublisher publisher;
+    private final Duration streamTimeout;
+    // Sends to SSE clients can block on slow sockets; keep them off the publishing thread
+    private final ExecutorService deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public UserChangeController(UserChangePublisher publisher,
+                                @Value("${users.changes.stream-timeout:30m}") Duration streamTimeout) {
+        this.publisher = publisher;
+        this.streamTimeout = streamTimeout;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        deliveryExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the events after {@code after} as soon as there are any, or an empty batch once {@code wait}
+     * seconds pass without a change.
+     */
+    @GetMapping
+    public DeferredResult<UserChangeBatch> poll(@RequestParam(required = false) Long after,
+                                                @RequestParam(defaultValue = "100") int limit,
+                                                @RequestParam(defaultValue = "30") int wait) {
+        if (limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        if (wait < 0 || wait > MAX_WAIT_SECONDS) {
+            throw new IllegalArgumentException("wait must be between 0 and " + MAX_WAIT_SECONDS + " seconds");
+        }
+        long from = after != null ? after : publisher.getLastOffset();
+        UserChangeBatch empty = new UserChangeBatch(List.of(), from);
+        // A zero servlet async timeout means no timeout at all, so wait=0 is answered right away instead
+        DeferredResult<UserChangeBatch> result =
+                new DeferredResult<>(wait == 0 ? null : Duration.ofSeconds(wait).toMillis(), () -> empty);
+
+        // Subscribe before reading the backlog so nothing published in between is missed
+        Runnable unsubscribe = publisher.subscribe(batch -> {
+            List<UserChangeEventResponse> events = publisher.eventsAfter(from, batch, limit);
+            if (!events.isEmpty()) {
+                result.setResult(new UserChangeBatch(events, events.getLast().getOffset()));
+            }
+        });
+        result.onCompletion(unsubscribe);
+        List<UserChangeEventResponse> backlog = publisher.readAfter(from, limit);
+        if (!backlog.isEmpty()) {
+            result.setResult(new UserChangeBatch(backlog, backlog.getLast().getOffset()));
+        } else if (wait == 0) {
+            result.setResult(empty);
+        }
+        return result;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long after,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : after != null ? after : publisher.getLastOffset();
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        StreamSubscription subscription = new StreamSubscription(emitter, from);
+
+        Runnable unsubscribe = publisher.subscribe(batch -> deliveryExecutor.execute(() -> subscription.deliver(batch)));
+        emitter.onCompletion(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        emitter.onTimeout(emitter::complete);
+        deliveryExecutor.execute(() -> subscription.deliver(List.of()));
+        return emitter;
+    }
+
+    /**
+     * Delivery state of one SSE client. Deliveries are serialised, and each one sends everything after the
+     * last offset sent, so events reach the client once and in order even if batches are handed over out of
+     * order or the client started behind.
+     */
+    private final class StreamSubscription {
+
+        private final SseEmitter emitter;
+        // Not synchronized: sends block on the socket and would pin the virtual thread's carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private long lastSent;
+
+        StreamSubscription(SseEmitter emitter, long lastSent) {
+            this.emitter = emitter;
+            this.lastSent = lastSent;
+        }
+
+        void deliver(List<UserChangeEventResponse> batch) {
+            lock.lock();
+            try {
+                List<UserChangeEventResponse> events = publisher.eventsAfter(lastSent, batch, MAX_BATCH_SIZE);
+                while (!events.isEmpty()) {
+                    for (UserChangeEventResponse event : events) {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(event.getOffset()))
+                                .name(event.getType().name())
+                                .data(event, MediaType.APPLICATION_JSON));
+                        lastSent = event.getOffset();
+                    }
+                    events = events.size() < MAX_BATCH_SIZE ? List.of() : publisher.readAfter(lastSent, MAX_BATCH_SIZE);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                emitter.completeWithError(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
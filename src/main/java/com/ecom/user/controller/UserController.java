@@ -1,20 +1,51 @@
 package com.ecom.user.controller;
 
 import com.ecom.user.dto.*;
+import com.ecom.user.exception.PreconditionFailedException;
+import com.ecom.user.model.Role;
+import com.ecom.user.repository.UserVersion;
+import com.ecom.user.security.TokenUser;
+import com.ecom.user.service.UserExportService;
+import com.ecom.user.service.UserImportService;
 import com.ecom.user.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService,
+                          UserExportService userExportService) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
     }
 
     @PostMapping("/register")
@@ -23,27 +54,186 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public void importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body,
+                            HttpServletResponse response) throws IOException {
+        UserImportService.Format format = MediaType.parseMediaType(TEXT_CSV_VALUE).isCompatibleWith(contentType)
+                ? UserImportService.Format.CSV
+                : UserImportService.Format.NDJSON;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userImportService.importUsers(body, format, response.getOutputStream());
+    }
+
+    /**
+     * Streams all users after {@code afterId} as NDJSON, gzip-compressed when the client accepts it.
+     */
+    @GetMapping("/export")
+    public void exportUsers(@RequestParam(defaultValue = "0") long afterId,
+                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            // syncFlush so every batch the export flushes reaches the client instead of waiting in the deflater
+            try (OutputStream gzip = new GZIPOutputStream(response.getOutputStream(), 64 * 1024, true)) {
+                userExportService.exportUsers(afterId, gzip);
+            }
+            return;
+        }
+        userExportService.exportUsers(afterId, response.getOutputStream());
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
-        LoginResponse response = userService.login(request);
+    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request,
+                                               HttpServletRequest servletRequest) {
+        LoginResponse response = userService.login(request, servletRequest.getRemoteAddr());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/token/refresh")
+    public ResponseEntity<LoginResponse> refreshToken(@Valid @RequestBody TokenRequest request) {
+        LoginResponse response = userService.refreshToken(request.getToken());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/token/revoke")
+    public ResponseEntity<Void> revokeToken(@Valid @RequestBody TokenRequest request) {
+        userService.revokeToken(request.getToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping
+    public ResponseEntity<UserPageResponse> listUsers(
+            @RequestParam(required = false) Role role,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        UserPageResponse response = userService.listUsers(role, createdFrom, createdTo, cursor, limit);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<UserResponse>> searchUsers(@RequestParam String q,
+                                                          @RequestParam(defaultValue = "20") int limit) {
+        List<UserResponse> response = userService.searchUsers(q, limit);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<UserBatchResponse> getUsersByIds(@RequestParam List<Long> ids) {
+        UserBatchResponse response = userService.getUsersByIds(ids);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * The authenticated user, answered from the access token's claims.
+     */
+    @GetMapping("/me")
+    public ResponseEntity<CurrentUserResponse> getCurrentUser(@AuthenticationPrincipal TokenUser user) {
+        CurrentUserResponse response = userService.getCurrentUser(user);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Tagged with a strong ETag of the user's id and version. A matching {@code If-None-Match} is answered
+     * with 304 after looking up only the version.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<UserResponse> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserResponse> getUserById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> eTag = userService.findUserVersion(id).map(UserController::eTag);
+            if (eTag.isPresent() && matchesAny(ifNoneMatch, eTag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+            }
+        }
         UserResponse response = userService.getUserById(id);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(eTag(response)).body(response);
     }
 
     @GetMapping("/email/{email}")
-    public ResponseEntity<UserResponse> getUserByEmail(@PathVariable String email) {
+    public ResponseEntity<UserResponse> getUserByEmail(
+            @PathVariable String email,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> eTag = userService.findUserVersionByEmail(email).map(UserController::eTag);
+            if (eTag.isPresent() && matchesAny(ifNoneMatch, eTag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+            }
+        }
         UserResponse response = userService.getUserByEmail(email);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(eTag(response)).body(response);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<UserResponse> updateUser(@PathVariable Long id, @RequestBody RegisterRequest request) {
         UserResponse response = userService.updateUser(id, request);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(eTag(response)).body(response);
+    }
+
+    /**
+     * Applies a JSON Merge Patch. With {@code If-Match} the patch only applies while the user still has
+     * one of the given ETags and fails with 412 otherwise; {@code *} or no header applies it to any version.
+     */
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH_JSON_VALUE)
+    public ResponseEntity<UserResponse> patchUser(
+            @PathVariable Long id,
+            @Valid @RequestBody UserPatchRequest patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserResponse response = userService.patchUser(id, patch, acceptedVersions(id, ifMatch));
+        return ResponseEntity.ok().eTag(eTag(response)).body(response);
+    }
+
+    private static String eTag(UserResponse user) {
+        return eTag(new UserVersion(user.getId(), user.getVersion()));
+    }
+
+    private static String eTag(UserVersion user) {
+        return "\"" + user.id() + "-" + user.version() + "\"";
+    }
+
+    /**
+     * The versions of user {@code id} named by {@code If-Match}, or {@code null} if any version will do.
+     * {@code If-Match} uses the strong comparison, so weak tags never match.
+     */
+    private static Set<Long> acceptedVersions(Long id, String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        String prefix = id + "-";
+        for (ETag candidate : ETag.parse(ifMatch)) {
+            if (candidate.isWildcard()) {
+                return null;
+            }
+            if (!candidate.weak() && candidate.tag().startsWith(prefix)) {
+                try {
+                    versions.add(Long.parseLong(candidate.tag().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of our tags, so it cannot match
+                }
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException("If-Match does not name a version of user " + id);
+        }
+        return versions;
+    }
+
+    /**
+     * {@code If-None-Match} uses the weak comparison, so {@code W/"1-3"} matches too.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String eTag) {
+        ETag current = ETag.create(eTag);
+        for (ETag candidate : ETag.parse(ifNoneMatch)) {
+            if (candidate.isWildcard() || candidate.compare(current, false)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
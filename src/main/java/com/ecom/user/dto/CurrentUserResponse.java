@@ -0,0 +1,73 @@
+package com.ecom.user.dto;
+
+import com.ecom.user.model.Role;
+
+public class CurrentUserResponse {
+
+    private Long id;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private Role role;
+    private long version;
+
+    public CurrentUserResponse() {
+    }
+
+    public CurrentUserResponse(Long id, String email, String firstName, String lastName, Role role, long version) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.role = role;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
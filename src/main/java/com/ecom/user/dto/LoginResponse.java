@@ -5,14 +5,16 @@ import com.ecom.user.model.Role;
 public class LoginResponse {
 
     private String token;
+    private String refreshToken;
     private String email;
     private Role role;
 
     public LoginResponse() {
     }
 
-    public LoginResponse(String token, String email, Role role) {
+    public LoginResponse(String token, String refreshToken, String email, Role role) {
         this.token = token;
+        this.refreshToken = refreshToken;
         this.email = email;
         this.role = role;
     }
@@ -25,6 +27,14 @@ public class LoginResponse {
         this.token = token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public String getEmail() {
         return email;
     }
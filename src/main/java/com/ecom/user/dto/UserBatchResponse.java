@@ -0,0 +1,34 @@
+package com.ecom.user.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class UserBatchResponse {
+
+    private Map<Long, UserResponse> users;
+    private List<Long> missing;
+
+    public UserBatchResponse() {
+    }
+
+    public UserBatchResponse(Map<Long, UserResponse> users, List<Long> missing) {
+        this.users = users;
+        this.missing = missing;
+    }
+
+    public Map<Long, UserResponse> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<Long, UserResponse> users) {
+        this.users = users;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing) {
+        this.missing = missing;
+    }
+}
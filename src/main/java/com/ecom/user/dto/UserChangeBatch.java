@@ -0,0 +1,37 @@
+package com.ecom.user.dto;
+
+import java.util.List;
+
+public class UserChangeBatch {
+
+    private List<UserChangeEventResponse> events;
+    private long lastOffset;
+
+    public UserChangeBatch() {
+    }
+
+    public UserChangeBatch(List<UserChangeEventResponse> events, long lastOffset) {
+        this.events = events;
+        this.lastOffset = lastOffset;
+    }
+
+    public List<UserChangeEventResponse> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<UserChangeEventResponse> events) {
+        this.events = events;
+    }
+
+    /**
+     * Offset of the last event in this batch, or the requested one if the batch is empty; pass it as
+     * {@code after} on the next poll.
+     */
+    public long getLastOffset() {
+        return lastOffset;
+    }
+
+    public void setLastOffset(long lastOffset) {
+        this.lastOffset = lastOffset;
+    }
+}
@@ -0,0 +1,108 @@
+package com.ecom.user.dto;
+
+import com.ecom.user.model.Role;
+import com.ecom.user.model.UserChangeEvent;
+
+import java.time.LocalDateTime;
+
+public class UserChangeEventResponse {
+
+    private long offset;
+    private UserChangeEvent.Type type;
+    private Long userId;
+    private String email;
+    private String previousEmail;
+    private String firstName;
+    private String lastName;
+    private Role role;
+    private LocalDateTime occurredAt;
+
+    public UserChangeEventResponse() {
+    }
+
+    public UserChangeEventResponse(long offset, UserChangeEvent.Type type, Long userId, String email,
+                                   String previousEmail, String firstName, String lastName, Role role,
+                                   LocalDateTime occurredAt) {
+        this.offset = offset;
+        this.type = type;
+        this.userId = userId;
+        this.email = email;
+        this.previousEmail = previousEmail;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.role = role;
+        this.occurredAt = occurredAt;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public UserChangeEvent.Type getType() {
+        return type;
+    }
+
+    public void setType(UserChangeEvent.Type type) {
+        this.type = type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPreviousEmail() {
+        return previousEmail;
+    }
+
+    public void setPreviousEmail(String previousEmail) {
+        this.previousEmail = previousEmail;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
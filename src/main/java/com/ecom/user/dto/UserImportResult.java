@@ -0,0 +1,82 @@
+package com.ecom.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+
+    private long line;
+    private String email;
+    private Status status;
+    private Long id;
+    private String message;
+
+    public UserImportResult() {
+    }
+
+    public UserImportResult(long line, String email, Status status, Long id, String message) {
+        this.line = line;
+        this.email = email;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public static UserImportResult created(long line, String email, Long id) {
+        return new UserImportResult(line, email, Status.CREATED, id, null);
+    }
+
+    public static UserImportResult duplicate(long line, String email, String message) {
+        return new UserImportResult(line, email, Status.DUPLICATE, null, message);
+    }
+
+    public static UserImportResult invalid(long line, String email, String message) {
+        return new UserImportResult(line, email, Status.INVALID, null, message);
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
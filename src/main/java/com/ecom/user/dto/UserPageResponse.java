@@ -0,0 +1,36 @@
+package com.ecom.user.dto;
+
+import java.util.List;
+
+public class UserPageResponse {
+
+    private List<UserResponse> users;
+    private String nextCursor;
+
+    public UserPageResponse() {
+    }
+
+    public UserPageResponse(List<UserResponse> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserResponse> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserResponse> users) {
+        this.users = users;
+    }
+
+    /**
+     * Pass as {@code cursor} to fetch the next page; {@code null} on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecom.user.dto;
+
+import com.ecom.user.model.Role;
+import jakarta.validation.constraints.Email;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A JSON Merge Patch (RFC 7396) of a user. Members missing from the document leave the field alone and a
+ * {@code null} member clears it, so the setters record which members were present.
+ */
+public class UserPatchRequest {
+
+    @Email(message = "Email must be valid")
+    private String email;
+
+    private String password;
+
+    private String firstName;
+
+    private String lastName;
+
+    private Role role;
+
+    private final Set<String> present = new HashSet<>();
+
+    public UserPatchRequest() {
+    }
+
+    public boolean has(String field) {
+        return present.contains(field);
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+        present.add("email");
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+        present.add("password");
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+        present.add("firstName");
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+        present.add("lastName");
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+        present.add("role");
+    }
+}
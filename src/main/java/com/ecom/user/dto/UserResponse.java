@@ -11,17 +11,20 @@ public class UserResponse {
     private String lastName;
     private Role role;
     private LocalDateTime createdAt;
+    private long version;
 
     public UserResponse() {
     }
 
-    public UserResponse(Long id, String email, String firstName, String lastName, Role role, LocalDateTime createdAt) {
+    public UserResponse(Long id, String email, String firstName, String lastName, Role role, LocalDateTime createdAt,
+                        long version) {
         this.id = id;
         this.email = email;
         this.firstName = firstName;
         this.lastName = lastName;
         this.role = role;
         this.createdAt = createdAt;
+        this.version = version;
     }
 
     public Long getId() {
@@ -71,4 +74,12 @@ public class UserResponse {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
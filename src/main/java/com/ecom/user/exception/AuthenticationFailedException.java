@@ -0,0 +1,18 @@
+package com.ecom.user.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Credentials or a token that do not authenticate the caller; always answered with {@code 401}.
+ */
+public abstract class AuthenticationFailedException extends UserServiceException {
+
+    protected AuthenticationFailedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNAUTHORIZED;
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecom.user.exception;
+
+/**
+ * Failed login, whether the email is unknown or the password is wrong; callers cannot tell which.
+ */
+public class InvalidCredentialsException extends AuthenticationFailedException {
+
+    public InvalidCredentialsException() {
+        super("Invalid email or password");
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecom.user.exception;
+
+/**
+ * A refresh token that is malformed, expired, revoked or not a refresh token at all.
+ */
+public class InvalidTokenException extends AuthenticationFailedException {
+
+    public InvalidTokenException() {
+        super("Invalid or expired refresh token");
+    }
+}
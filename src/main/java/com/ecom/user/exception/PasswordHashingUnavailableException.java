@@ -0,0 +1,24 @@
+package com.ecom.user.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+public class PasswordHashingUnavailableException extends UserServiceException {
+
+    private final Duration retryAfter;
+
+    public PasswordHashingUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
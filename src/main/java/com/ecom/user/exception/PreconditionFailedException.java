@@ -0,0 +1,15 @@
+package com.ecom.user.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PreconditionFailedException extends UserServiceException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.PRECONDITION_FAILED;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ecom.user.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+public class TooManyLoginAttemptsException extends UserServiceException {
+
+    private final Duration retryAfter;
+
+    public TooManyLoginAttemptsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecom.user.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Expected failure that maps straight to an HTTP status. These are thrown on ordinary request paths,
+ * often at whatever rate a client chooses (wrong passwords, unknown ids), and carry nothing a stack
+ * trace would explain, so none is captured.
+ */
+public abstract class UserServiceException extends RuntimeException {
+
+    protected UserServiceException(String message) {
+        super(message, null, false, false);
+    }
+
+    public abstract HttpStatus getStatus();
+}
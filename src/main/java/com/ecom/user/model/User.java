@@ -3,21 +3,45 @@ package com.ecom.user.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "users")
+// UPDATE statements list only the changed columns, plus version and updated_at
+@DynamicUpdate
+@Table(name = "users",
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"),
+                // Email lookups and case-insensitive uniqueness go through the normalized address
+                @UniqueConstraint(name = User.NORMALIZED_EMAIL_CONSTRAINT, columnNames = "normalized_email")
+        },
+        // Keyset pagination seeks on (created_at, id), optionally after an equality match on role
+        indexes = {
+                @Index(name = "idx_users_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_users_role_created_at_id", columnList = "role, created_at, id")
+        })
 public class User {
 
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+    public static final String NORMALIZED_EMAIL_CONSTRAINT = "uk_users_normalized_email";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     @NotBlank(message = "Email is required")
     @Email(message = "Email must be valid")
     private String email;
 
+    /**
+     * {@link #normalizeEmail(String) Normalized} form of {@link #email}, kept in step on persist and update.
+     * Null only for rows written before the column existed, until {@code NormalizedEmailBackfill} reaches them.
+     */
+    @Column(name = "normalized_email")
+    private String normalizedEmail;
+
     @NotBlank(message = "Password is required")
     @Column(nullable = false)
     private String password;
@@ -34,15 +58,30 @@ public class User {
 
     private LocalDateTime updatedAt;
 
+    /** Incremented on every update; access tokens carry the version they were issued for. */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        this.normalizedEmail = normalizeEmail(email);
     }
 
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
+        this.normalizedEmail = normalizeEmail(email);
+    }
+
+    /**
+     * The form emails are compared in: trimmed and lower-cased, so {@code Alice@Example.com} and
+     * {@code alice@example.com} are the same account.
+     */
+    public static String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
     }
 
     public User() {
@@ -73,6 +112,10 @@ public class User {
         this.email = email;
     }
 
+    public String getNormalizedEmail() {
+        return normalizedEmail;
+    }
+
     public String getPassword() {
         return password;
     }
@@ -120,4 +163,12 @@ public class User {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,145 @@
+package com.ecom.user.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row written in the same transaction as the user change it describes. The offset stays
+ * {@code null} until {@code UserChangePublisher} publishes the row; offsets are handed out in publish
+ * order, so they only ever increase even when transactions commit out of id order.
+ */
+@Entity
+@Table(name = "user_change_events",
+        indexes = @Index(name = "idx_user_change_events_offset", columnList = "published_offset", unique = true))
+public class UserChangeEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long publishedOffset;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    private String email;
+
+    /** Email before an update that changed it, so consumers can evict entries keyed by the old address. */
+    private String previousEmail;
+
+    private String firstName;
+
+    private String lastName;
+
+    @Enumerated(EnumType.STRING)
+    private Role role;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    public UserChangeEvent() {
+    }
+
+    public static UserChangeEvent of(Type type, User user, String previousEmail) {
+        UserChangeEvent event = new UserChangeEvent();
+        event.setType(type);
+        event.setUserId(user.getId());
+        event.setEmail(user.getEmail());
+        event.setPreviousEmail(previousEmail);
+        event.setFirstName(user.getFirstName());
+        event.setLastName(user.getLastName());
+        event.setRole(user.getRole());
+        event.setOccurredAt(LocalDateTime.now());
+        return event;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPublishedOffset() {
+        return publishedOffset;
+    }
+
+    public void setPublishedOffset(Long publishedOffset) {
+        this.publishedOffset = publishedOffset;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPreviousEmail() {
+        return previousEmail;
+    }
+
+    public void setPreviousEmail(String previousEmail) {
+        this.previousEmail = previousEmail;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecom.user.repository;
+
+import com.ecom.user.model.UserChangeEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserChangeEventRepository extends JpaRepository<UserChangeEvent, Long> {
+
+    List<UserChangeEvent> findByPublishedOffsetIsNullOrderByIdAsc(Limit limit);
+
+    List<UserChangeEvent> findByPublishedOffsetGreaterThanOrderByPublishedOffsetAsc(long offset, Limit limit);
+
+    @Query("select max(e.publishedOffset) from UserChangeEvent e")
+    Long findMaxPublishedOffset();
+
+    /**
+     * Drops published events that occurred before {@code cutoff} and have an offset below {@code offset};
+     * consumers further behind than that have to resynchronise from the export. Returns the number of rows
+     * deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from UserChangeEvent e where e.publishedOffset < :offset and e.occurredAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("offset") long offset);
+}
@@ -0,0 +1,11 @@
+package com.ecom.user.repository;
+
+import com.ecom.user.model.Role;
+
+/**
+ * The columns a login needs to check the password and issue tokens, read without loading the
+ * {@link com.ecom.user.model.User} entity.
+ */
+public record UserCredentials(Long id, String email, String password, Role role, String firstName, String lastName,
+                              long version) {
+}
@@ -2,14 +2,43 @@ package com.ecom.user.repository;
 
 import com.ecom.user.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
-    Optional<User> findByEmail(String email);
+    /**
+     * Email lookups take an address already passed through {@link User#normalizeEmail(String)} and probe the
+     * unique index on {@code normalized_email}, so they are case-insensitive without scanning {@code users}.
+     */
+    Optional<User> findByNormalizedEmail(String normalizedEmail);
 
-    boolean existsByEmail(String email);
+    boolean existsByNormalizedEmail(String normalizedEmail);
+
+    @Query("select new com.ecom.user.repository.UserCredentials(u.id, u.email, u.password, u.role, u.firstName, "
+            + "u.lastName, u.version) from User u where u.normalizedEmail = :email")
+    Optional<UserCredentials> findCredentialsByNormalizedEmail(@Param("email") String normalizedEmail);
+
+    @Query("select new com.ecom.user.repository.UserVersion(u.id, u.version) from User u where u.id = :id")
+    Optional<UserVersion> findVersionById(@Param("id") Long id);
+
+    @Query("select new com.ecom.user.repository.UserVersion(u.id, u.version) from User u "
+            + "where u.normalizedEmail = :email")
+    Optional<UserVersion> findVersionByNormalizedEmail(@Param("email") String normalizedEmail);
+
+    /**
+     * Replaces a password hash only if it is still {@code currentHash}, so a rehash never overwrites a
+     * password changed in the meantime. Returns the number of rows updated.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newHash where u.id = :id and u.password = :currentHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("currentHash") String currentHash,
+                           @Param("newHash") String newHash);
 }
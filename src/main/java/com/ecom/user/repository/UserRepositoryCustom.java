@@ -0,0 +1,18 @@
+package com.ecom.user.repository;
+
+import com.ecom.user.dto.UserResponse;
+import com.ecom.user.model.Role;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Returns up to {@code limit} users, newest first, ordered by {@code (createdAt, id)} descending.
+     * Every filter is optional; {@code createdFrom} is inclusive and {@code createdTo} exclusive.
+     * Rows are read as {@link UserResponse} projections, so the password column is never selected.
+     */
+    List<UserResponse> findPage(Role role, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                UserPageCursor after, int limit);
+}
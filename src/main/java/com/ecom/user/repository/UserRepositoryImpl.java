@@ -0,0 +1,58 @@
+package com.ecom.user.repository;
+
+import com.ecom.user.dto.UserResponse;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seek-based listing: the position is a {@code WHERE} on the {@code (created_at, id)} index rather than
+ * an {@code OFFSET}, so every page costs the same no matter how deep it is.
+ */
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserResponse> findPage(Role role, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                       UserPageCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserResponse> query = cb.createQuery(UserResponse.class);
+        Root<User> user = query.from(User.class);
+        Path<LocalDateTime> createdAt = user.get("createdAt");
+        Path<Long> id = user.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (role != null) {
+            predicates.add(cb.equal(user.get("role"), role));
+        }
+        if (createdFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(createdAt, createdFrom));
+        }
+        if (createdTo != null) {
+            predicates.add(cb.lessThan(createdAt, createdTo));
+        }
+        if (after != null) {
+            // (created_at, id) < (:createdAt, :id), split so the first conjunct is a plain index range
+            predicates.add(cb.lessThanOrEqualTo(createdAt, after.createdAt()));
+            predicates.add(cb.or(cb.lessThan(createdAt, after.createdAt()), cb.lessThan(id, after.id())));
+        }
+
+        query.select(cb.construct(UserResponse.class, id, user.get("email"), user.get("firstName"),
+                        user.get("lastName"), user.get("role"), createdAt, user.get("version")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.desc(createdAt), cb.desc(id));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
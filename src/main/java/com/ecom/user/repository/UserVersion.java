@@ -0,0 +1,7 @@
+package com.ecom.user.repository;
+
+/**
+ * A user's id and row version, enough to answer a conditional request without loading the user.
+ */
+public record UserVersion(Long id, long version) {
+}
@@ -0,0 +1,405 @@
+package com.ecom.user.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix index over user emails and names for support lookups. Each term maps to a sorted {@code long[]}
+ * of user ids, and terms are kept in a sorted map, so a query prefix is a range scan over the terms it
+ * starts. Indexed terms are the words of the email's local part and of the first and last name, plus the
+ * whole email and any name containing punctuation, all lower-cased. The email domain is not split out
+ * because it would match almost every user. Whole emails and names live in a separate map that is only
+ * scanned for query words containing punctuation; a plain word prefix of them is always a prefix of
+ * their first word too.
+ * <p>
+ * Posting arrays are replaced, never modified, so searches read without locking while writes are
+ * serialised. Each add or removal therefore copies the term's whole array under the lock: about 4 us for
+ * a term with 10k users ({@code UserSearchIndexBenchmark.updateCommonName}), growing linearly with it. The table is streamed into the index after startup; until then searches only see users
+ * added since. Users added or updated while the table is read are already indexed by their current fields,
+ * so their rows in the snapshot, which may be older, are left out of the merge.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final int LOAD_FETCH_SIZE = 1000;
+    private static final int MAX_FLATTENED_POSTINGS = 4096;
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentSkipListMap<String, long[]> words = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, long[]> phrases = new ConcurrentSkipListMap<>();
+    /** Each indexed user's terms, against which the non-leading words of a query are checked. */
+    private final ConcurrentHashMap<Long, String[]> termsById = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    /** Ids added or updated since the running load started reading the table, or null outside a load. */
+    private Set<Long> changedWhileLoading;
+
+    public UserSearchIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("users.search.terms", this, index -> index.words.size() + index.phrases.size())
+                .description("Distinct terms in the user search index")
+                .register(meterRegistry);
+        Gauge.builder("users.search.ready", this, index -> index.ready ? 1 : 0)
+                .description("Whether the user search index has finished loading")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAsync() {
+        Thread.ofPlatform().name("user-search-loader").daemon().start(this::load);
+    }
+
+    /**
+     * Builds the postings for the whole table off to the side, growing each array by doubling instead of
+     * copying it per user, and merges them in at the end.
+     */
+    void load() {
+        long start = System.nanoTime();
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(LOAD_FETCH_SIZE);
+        Map<String, PostingsBuilder> built = new HashMap<>();
+        long[] loaded = {0};
+        synchronized (this) {
+            changedWhileLoading = new HashSet<>();
+        }
+        try {
+            streaming.query("select id, email, first_name, last_name from users", (RowCallbackHandler) rs -> {
+                long id = rs.getLong(1);
+                Set<String> terms = terms(rs.getString(2), rs.getString(3), rs.getString(4));
+                for (String term : terms) {
+                    built.computeIfAbsent(term, key -> new PostingsBuilder()).add(id);
+                }
+                // Users added or updated meanwhile have already put their current terms
+                termsById.putIfAbsent(id, terms.toArray(String[]::new));
+                loaded[0]++;
+            });
+        } catch (DataAccessException e) {
+            synchronized (this) {
+                changedWhileLoading = null;
+            }
+            log.warn("Could not load users into the search index; only new users will be found", e);
+            return;
+        }
+        synchronized (this) {
+            Set<Long> changed = changedWhileLoading;
+            changedWhileLoading = null;
+            built.forEach((term, builder) -> {
+                long[] ids = without(builder.toSortedArray(), changed);
+                if (ids.length > 0) {
+                    dictionaryOf(term).merge(term, ids, UserSearchIndex::union);
+                }
+            });
+        }
+        ready = true;
+        log.info("Indexed {} users ({} terms) for search in {} ms",
+                loaded[0], words.size() + phrases.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void add(long id, String email, String firstName, String lastName) {
+        Set<String> terms = terms(email, firstName, lastName);
+        synchronized (this) {
+            recordChange(id);
+            for (String term : terms) {
+                addPosting(term, id);
+            }
+            termsById.put(id, terms.toArray(String[]::new));
+        }
+    }
+
+    /**
+     * Moves a user from the terms of its old fields to those of its new ones; terms in both are left alone.
+     */
+    public void update(long id, String oldEmail, String oldFirstName, String oldLastName,
+                       String email, String firstName, String lastName) {
+        Set<String> oldTerms = terms(oldEmail, oldFirstName, oldLastName);
+        Set<String> newTerms = terms(email, firstName, lastName);
+        synchronized (this) {
+            recordChange(id);
+            for (String term : oldTerms) {
+                if (!newTerms.contains(term)) {
+                    removePosting(term, id);
+                }
+            }
+            for (String term : newTerms) {
+                addPosting(term, id);
+            }
+            termsById.put(id, newTerms.toArray(String[]::new));
+        }
+    }
+
+    /**
+     * Ids of up to {@code limit} users matching every whitespace-separated word of {@code query} as a
+     * term prefix. The longest word, usually the most selective, drives the scan: users with an exact
+     * term match for it come first, then the rest in term order. Each other word whose range holds at most
+     * {@value #MAX_FLATTENED_POSTINGS} postings is flattened into a sorted array and binary searched. A
+     * broader one, such as a single letter, is instead checked against each candidate's own few terms, so
+     * it costs no more than a narrow word.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> queryWords = new ArrayList<>();
+        for (String word : WHITESPACE.split(query.trim().toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty() && !queryWords.contains(word)) {
+                queryWords.add(word);
+            }
+        }
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        queryWords.sort(Comparator.comparingInt(String::length).reversed());
+        // A narrow filter word is flattened into one sorted array; a broad one is checked per candidate
+        List<long[]> narrowFilters = new ArrayList<>();
+        List<String> broadFilters = new ArrayList<>();
+        for (String word : queryWords.subList(1, queryWords.size())) {
+            long[] filter = flattenIfNarrow(range(word));
+            if (filter == null) {
+                broadFilters.add(word);
+            } else if (filter.length == 0) {
+                return List.of();
+            } else {
+                narrowFilters.add(filter);
+            }
+        }
+
+        Set<Long> found = new LinkedHashSet<>();
+        for (long[] ids : range(queryWords.getFirst()).values()) {
+            for (long id : ids) {
+                if (matchesAll(id, narrowFilters) && !found.contains(id)
+                        && (broadFilters.isEmpty() || startsAll(termsById.get(id), broadFilters))
+                        && found.add(id) && found.size() == limit) {
+                    return List.copyOf(found);
+                }
+            }
+        }
+        return List.copyOf(found);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    static Set<String> terms(String email, String firstName, String lastName) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (email != null && !email.isBlank()) {
+            String normalized = email.toLowerCase(Locale.ROOT);
+            terms.add(normalized);
+            int at = normalized.indexOf('@');
+            addWords(terms, at < 0 ? normalized : normalized.substring(0, at));
+        }
+        for (String name : new String[]{firstName, lastName}) {
+            if (name != null && !name.isBlank()) {
+                String normalized = name.trim().toLowerCase(Locale.ROOT);
+                // Query words never contain spaces, so a multi-word name is only indexed by its words
+                if (!WHITESPACE.matcher(normalized).find()) {
+                    terms.add(normalized);
+                }
+                addWords(terms, normalized);
+            }
+        }
+        return terms;
+    }
+
+    private static void addWords(Set<String> terms, String text) {
+        for (String word : WORD_SEPARATORS.split(text)) {
+            if (!word.isEmpty()) {
+                terms.add(word);
+            }
+        }
+    }
+
+    private NavigableMap<String, long[]> range(String prefix) {
+        return dictionaryOf(prefix).subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private ConcurrentSkipListMap<String, long[]> dictionaryOf(String term) {
+        return WORD.matcher(term).matches() ? words : phrases;
+    }
+
+    private void recordChange(long id) {
+        if (changedWhileLoading != null) {
+            changedWhileLoading.add(id);
+        }
+    }
+
+    private static long[] without(long[] ids, Set<Long> excluded) {
+        if (excluded.isEmpty()) {
+            return ids;
+        }
+        int kept = 0;
+        long[] result = new long[ids.length];
+        for (long id : ids) {
+            if (!excluded.contains(id)) {
+                result[kept++] = id;
+            }
+        }
+        return kept == ids.length ? ids : Arrays.copyOf(result, kept);
+    }
+
+    /**
+     * The ids under {@code range} as one sorted array, or null if it holds more than
+     * {@value #MAX_FLATTENED_POSTINGS} postings.
+     */
+    private static long[] flattenIfNarrow(NavigableMap<String, long[]> range) {
+        List<long[]> postings = new ArrayList<>();
+        int size = 0;
+        for (long[] ids : range.values()) {
+            size += ids.length;
+            if (size > MAX_FLATTENED_POSTINGS) {
+                return null;
+            }
+            postings.add(ids);
+        }
+        return union(postings);
+    }
+
+    private static boolean matchesAll(long id, List<long[]> filters) {
+        for (long[] filter : filters) {
+            if (Arrays.binarySearch(filter, id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether every filter word starts one of {@code terms}. A word without punctuation that starts a whole
+     * email or name also starts its first word, which is a term as well, so this matches the dictionary
+     * range the word would be looked up in.
+     */
+    private static boolean startsAll(String[] terms, List<String> filters) {
+        if (terms == null) {
+            return false;
+        }
+        for (String filter : filters) {
+            if (!startsAny(terms, filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsAny(String[] terms, String prefix) {
+        for (String term : terms) {
+            if (term.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addPosting(String term, long id) {
+        ConcurrentSkipListMap<String, long[]> dictionary = dictionaryOf(term);
+        long[] ids = dictionary.get(term);
+        if (ids == null) {
+            dictionary.put(term, new long[]{id});
+            return;
+        }
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return;
+        }
+        int insertAt = -position - 1;
+        long[] next = new long[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, insertAt);
+        next[insertAt] = id;
+        System.arraycopy(ids, insertAt, next, insertAt + 1, ids.length - insertAt);
+        dictionary.put(term, next);
+    }
+
+    private void removePosting(String term, long id) {
+        ConcurrentSkipListMap<String, long[]> dictionary = dictionaryOf(term);
+        long[] ids = dictionary.get(term);
+        int position = ids == null ? -1 : Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return;
+        }
+        if (ids.length == 1) {
+            dictionary.remove(term);
+            return;
+        }
+        long[] next = new long[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, position);
+        System.arraycopy(ids, position + 1, next, position, ids.length - position - 1);
+        dictionary.put(term, next);
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        return union(List.of(a, b));
+    }
+
+    private static long[] union(Iterable<long[]> arrays) {
+        PostingsBuilder all = new PostingsBuilder();
+        for (long[] ids : arrays) {
+            all.addAll(ids);
+        }
+        return all.toSortedArray();
+    }
+
+    private static long[] sortedDistinct(long[] ids, int size) {
+        Arrays.sort(ids, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+    }
+
+    private static final class PostingsBuilder {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void addAll(long[] more) {
+            if (size + more.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(size * 2, size + more.length));
+            }
+            System.arraycopy(more, 0, ids, size, more.length);
+            size += more.length;
+        }
+
+        long[] toSortedArray() {
+            return sortedDistinct(ids, size);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecom.user.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt encoder whose strength is either fixed or calibrated at startup against a target hash time.
+ * Unlike {@link BCryptPasswordEncoder}, a fixed strength asks for a rehash whenever a stored hash uses a
+ * different one, so lowering the cost downgrades existing hashes just as raising it upgrades them.
+ * <p>
+ * A calibrated strength varies between instances and restarts, so it only asks for a rehash outside a
+ * band: below the strength by more than a tolerance, or above the configured maximum. Otherwise two
+ * instances settling on 10 and 11 would rewrite the same user's hash back and forth on every login.
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibratedBCryptPasswordEncoder.class);
+    private static final Pattern BCRYPT_STRENGTH = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private final int strength;
+    private final int lowestAccepted;
+    private final int highestAccepted;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        this(strength, strength, strength);
+    }
+
+    private CalibratedBCryptPasswordEncoder(int strength, int lowestAccepted, int highestAccepted) {
+        super(strength);
+        this.strength = strength;
+        this.lowestAccepted = lowestAccepted;
+        this.highestAccepted = highestAccepted;
+    }
+
+    /**
+     * Picks the highest strength in {@code [minStrength, maxStrength]} whose hash time stays within
+     * {@code targetTime}. Each step doubles the work, so only the minimum strength is actually timed.
+     * Stored hashes from {@code upgradeTolerance} below the picked strength up to {@code maxStrength} are
+     * kept as they are.
+     */
+    public static CalibratedBCryptPasswordEncoder calibrate(Duration targetTime, int minStrength, int maxStrength,
+                                                            int upgradeTolerance) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        long estimate = fastest;
+        while (strength < maxStrength && estimate * 2 <= targetTime.toNanos()) {
+            strength++;
+            estimate *= 2;
+        }
+        log.info("Calibrated BCrypt strength {} (about {} ms per hash, target {} ms)",
+                strength, Duration.ofNanos(estimate).toMillis(), targetTime.toMillis());
+        return new CalibratedBCryptPasswordEncoder(strength, strength - upgradeTolerance, maxStrength);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_STRENGTH.matcher(encodedPassword);
+        if (!matcher.find()) {
+            return false;
+        }
+        int stored = Integer.parseInt(matcher.group(1));
+        return stored < lowestAccepted || stored > highestAccepted;
+    }
+}
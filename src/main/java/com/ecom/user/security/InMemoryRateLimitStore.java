@@ -0,0 +1,139 @@
+package com.ecom.user.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding-window counters held in a bounded Caffeine cache. Each key's state is a single
+ * {@link AtomicLong} updated by compare-and-set, so concurrent attempts never lock. A key is evicted
+ * once it has been idle for two windows (after which its count is zero anyway), or earlier if the
+ * cache reaches {@code login-throttle.maximum-keys}.
+ */
+@Component
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, SlidingWindow> windows;
+    private final Ticker ticker;
+
+    @Autowired
+    public InMemoryRateLimitStore(MeterRegistry meterRegistry,
+                                  @Value("${login-throttle.maximum-keys:100000}") long maximumKeys) {
+        this(meterRegistry, maximumKeys, Ticker.systemTicker());
+    }
+
+    InMemoryRateLimitStore(MeterRegistry meterRegistry, long maximumKeys, Ticker ticker) {
+        this.ticker = ticker;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfter(new IdleExpiry())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, windows, "login.throttle.windows");
+    }
+
+    @Override
+    public Duration tryAcquire(String key, int limit, Duration window) {
+        if (limit < 1 || limit > SlidingWindow.MAX_COUNT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + SlidingWindow.MAX_COUNT);
+        }
+        if (window.toNanos() > Long.MAX_VALUE / (2L * limit + 1)) {
+            throw new IllegalArgumentException("Window " + window + " is too long for a limit of " + limit);
+        }
+        return windows.get(key, k -> new SlidingWindow(window.toNanos())).tryAcquire(ticker.read(), limit);
+    }
+
+    long size() {
+        windows.cleanUp();
+        return windows.estimatedSize();
+    }
+
+    /**
+     * Approximates a true sliding window from two fixed windows: the previous window's count is
+     * weighted by how much of it still overlaps the sliding window. The window index (32 bits) and the
+     * current and previous counts (16 bits each) are packed into one long. The arithmetic is scaled by
+     * the window length to stay in integers, so a retry at exactly the returned time is allowed.
+     */
+    private static final class SlidingWindow {
+
+        static final int MAX_COUNT = 0xFFFF;
+
+        private final long windowNanos;
+        private final AtomicLong state = new AtomicLong();
+
+        SlidingWindow(long windowNanos) {
+            this.windowNanos = windowNanos;
+        }
+
+        Duration tryAcquire(long now, int limit) {
+            int index = (int) Math.floorDiv(now, windowNanos);
+            long elapsed = Math.floorMod(now, windowNanos);
+            while (true) {
+                long packed = state.get();
+                long count = (packed >>> 16) & MAX_COUNT;
+                long previous = packed & MAX_COUNT;
+                int packedIndex = (int) (packed >>> 32);
+                if (packedIndex != index) {
+                    previous = packedIndex == index - 1 ? count : 0;
+                    count = 0;
+                }
+
+                if (previous * (windowNanos - elapsed) + (count + 1) * windowNanos > limit * windowNanos) {
+                    return retryAfter(elapsed, count, previous, limit);
+                }
+                long next = ((long) index << 32) | ((count + 1) << 16) | previous;
+                if (state.compareAndSet(packed, next)) {
+                    return Duration.ZERO;
+                }
+            }
+        }
+
+        private Duration retryAfter(long elapsed, long count, long previous, int limit) {
+            if (count + 1 > limit) {
+                // Only the next window can admit it, once this window's count has decayed enough
+                return Duration.ofNanos(windowNanos - elapsed + decayedAt(limit - 1, count));
+            }
+            return Duration.ofNanos(Math.max(decayedAt(limit - 1 - count, previous) - elapsed, 1));
+        }
+
+        /**
+         * Earliest offset into a window at which {@code weightedCount} times the remaining overlap has
+         * dropped to {@code allowance}.
+         */
+        private long decayedAt(long allowance, long weightedCount) {
+            return windowNanos - Math.floorDiv(allowance * windowNanos, weightedCount);
+        }
+
+        long idleTimeout() {
+            return 2 * windowNanos;
+        }
+    }
+
+    private static final class IdleExpiry implements Expiry<String, SlidingWindow> {
+
+        @Override
+        public long expireAfterCreate(String key, SlidingWindow window, long currentTime) {
+            return window.idleTimeout();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, SlidingWindow window, long currentTime, long currentDuration) {
+            return window.idleTimeout();
+        }
+
+        @Override
+        public long expireAfterRead(String key, SlidingWindow window, long currentTime, long currentDuration) {
+            return window.idleTimeout();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecom.user.security;
+
+import io.jsonwebtoken.security.Jwks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Rendered {@code /.well-known/jwks.json} body for one key ring, with a strong ETag over its bytes.
+ * Only public keys are published; HMAC secrets never leave the service. Keys are ordered by id so every
+ * instance holding the same keys serves the same body and ETag.
+ */
+public record JwkSetDocument(String json, String etag) {
+
+    static JwkSetDocument of(Map<String, Key> verificationKeys) {
+        String keys = new TreeMap<>(verificationKeys).entrySet().stream()
+                .filter(entry -> entry.getValue() instanceof PublicKey)
+                .map(entry -> Jwks.json(Jwks.builder()
+                        .key((PublicKey) entry.getValue())
+                        .id(entry.getKey())
+                        .publicKeyUse("sig")
+                        .build()))
+                .collect(Collectors.joining(","));
+        String json = "{\"keys\":[" + keys + "]}";
+        return new JwkSetDocument(json, "\"" + sha256(json) + "\"");
+    }
+
+    private static String sha256(String json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
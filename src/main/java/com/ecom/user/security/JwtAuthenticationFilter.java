@@ -0,0 +1,77 @@
+package com.ecom.user.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates {@code Authorization: Bearer} requests against {@link JwtService}.
+ * Requests without a bearer token, or with an invalid, revoked or refresh token, continue
+ * unauthenticated and are rejected by the authorization rules if the endpoint requires a user.
+ * The principal is the {@link TokenUser} from the claims, with a {@code ROLE_} authority for its role.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocationIndex revocationIndex;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
+
+    public JwtAuthenticationFilter(JwtService jwtService, VerifiedTokenCache tokenCache,
+                                   TokenRevocationIndex revocationIndex) {
+        this.jwtService = jwtService;
+        this.tokenCache = tokenCache;
+        this.revocationIndex = revocationIndex;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String token = header.substring(BEARER_PREFIX.length()).trim();
+        try {
+            Claims claims = tokenCache.getVerifiedClaims(token, jwtService::parseSignedClaims,
+                    jwtService::isVerificationKey);
+            // Checked on every request, cache hit or not, so a revocation takes effect immediately
+            if (!JwtService.isAccessToken(claims) || revocationIndex.isRevoked(claims.getId(), claims.getExpiration())) {
+                SecurityContextHolder.clearContext();
+                filterChain.doFilter(request, response);
+                return;
+            }
+            TokenUser user = TokenUser.from(claims);
+            List<SimpleGrantedAuthority> authorities = user.role() != null
+                    ? List.of(new SimpleGrantedAuthority("ROLE_" + user.role()))
+                    : List.of();
+            UsernamePasswordAuthenticationToken authentication =
+                    UsernamePasswordAuthenticationToken.authenticated(user, null, authorities);
+            authentication.setDetails(detailsSource.buildDetails(request));
+
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+        } catch (JwtException | IllegalArgumentException e) {
+            SecurityContextHolder.clearContext();
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecom.user.security;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the signing keys known to {@link JwtService}.
+ * The active key signs new tokens; every key in the ring is accepted for verification. For HMAC the
+ * signing and verification key are the same secret, for ES256/EdDSA the ring only keeps the public half
+ * of retired keys. Rotation builds a new snapshot and swaps it in atomically, so readers never see a
+ * partial update.
+ */
+record JwtKeyRing(String activeKeyId, Key signingKey, Map<String, Key> verificationKeys) {
+
+    JwtKeyRing {
+        verificationKeys = Map.copyOf(verificationKeys);
+        if (!verificationKeys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active key id " + activeKeyId + " is not in the key ring");
+        }
+    }
+
+    static JwtKeyRing of(String keyId, SecretKey key) {
+        return new JwtKeyRing(keyId, key, Map.of(keyId, key));
+    }
+
+    static JwtKeyRing of(String keyId, KeyPair keyPair) {
+        return new JwtKeyRing(keyId, keyPair.getPrivate(), Map.of(keyId, keyPair.getPublic()));
+    }
+
+    Key key(String keyId) {
+        return verificationKeys.get(keyId == null ? activeKeyId : keyId);
+    }
+
+    Set<String> keyIds() {
+        return verificationKeys.keySet();
+    }
+
+    JwtKeyRing withActiveKey(String keyId, Key signingKey, Key verificationKey) {
+        Map<String, Key> next = new HashMap<>(verificationKeys);
+        next.put(keyId, verificationKey);
+        return new JwtKeyRing(keyId, signingKey, next);
+    }
+
+    JwtKeyRing without(String keyId) {
+        if (keyId.equals(activeKeyId)) {
+            throw new IllegalArgumentException("Cannot retire the active key " + keyId);
+        }
+        Map<String, Key> next = new HashMap<>(verificationKeys);
+        next.remove(keyId);
+        return new JwtKeyRing(activeKeyId, signingKey, next);
+    }
+}
@@ -1,31 +1,126 @@
 package com.ecom.user.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
+/**
+ * Issues and verifies two kinds of tokens: short-lived access tokens sent as {@code Authorization: Bearer},
+ * and long-lived refresh tokens that can only be exchanged for a new pair. Both carry a {@code jti} so
+ * they can be revoked individually through {@link TokenRevocationIndex}. Both also carry the user's id, role,
+ * names and profile version (see {@link TokenUser}), so neither this service nor its callers need to look the
+ * user up to authorise a request.
+ * <p>
+ * Tokens are signed with the shared HMAC secret by default. With {@code jwt.signature-algorithm} set to
+ * {@code ES256} or {@code EdDSA} they are signed with a private key instead, and the public keys are
+ * published through {@link #getJwkSet()} so other services can verify tokens without calling us.
+ */
 @Service
 public class JwtService {
 
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+    public static final String ROLE_CLAIM = "role";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String VERSION_CLAIM = "ver";
+    public static final String GIVEN_NAME_CLAIM = "given_name";
+    public static final String FAMILY_NAME_CLAIM = "family_name";
+
+    private static final Logger log = LoggerFactory.getLogger(JwtService.class);
+
     @Value("${jwt.secret:ecom-research-jwt-secret-key-that-is-long-enough-for-hmac-sha256}")
     private String secretKey;
 
-    @Value("${jwt.expiration:86400000}")
+    @Value("${jwt.signature-algorithm:HMAC}")
+    private String signatureAlgorithm = "HMAC";
+
+    /** PEM-encoded PKCS#8 private key for ES256/EdDSA; a key pair is generated when empty. */
+    @Value("${jwt.private-key:}")
+    private String privateKey = "";
+
+    /** PEM-encoded X.509 public key matching {@code jwt.private-key}. */
+    @Value("${jwt.public-key:}")
+    private String publicKey = "";
+
+    @Value("${jwt.key-id:primary}")
+    private String keyId;
+
+    @Value("${jwt.expiration:900000}")
     private long expiration;
 
-    public String generateToken(String email) {
-        return Jwts.builder()
-                .subject(email)
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+    @Value("${jwt.refresh-expiration:604800000}")
+    private long refreshExpiration;
+
+    private final AtomicReference<JwtKeyRing> keyRing = new AtomicReference<>();
+
+    private volatile JwkSetDocument jwkSet;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        JwtKeyRing initial = switch (signatureAlgorithm.toUpperCase(Locale.ROOT)) {
+            case "HMAC" -> JwtKeyRing.of(keyId, hmacKey(secretKey));
+            case "ES256", "EDDSA" -> JwtKeyRing.of(keyId, signingKeyPair());
+            default -> throw new IllegalStateException("Unsupported jwt.signature-algorithm: " + signatureAlgorithm);
+        };
+        updateKeyRing(ring -> initial);
+        // JwtParser is immutable and thread-safe; the locator reads the current key ring on every parse.
+        parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        Key key = keyRing.get().key(header.getKeyId());
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key id: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Access token accepted by {@link JwtAuthenticationFilter}, valid for {@code jwt.expiration}.
+     */
+    public String generateToken(TokenUser user) {
+        return issue(user, ACCESS_TOKEN, expiration);
+    }
+
+    /**
+     * Refresh token valid for {@code jwt.refresh-expiration}. It carries the same user claims as the access
+     * token, so a refresh can build the new pair without a database round trip.
+     */
+    public String generateRefreshToken(TokenUser user) {
+        return issue(user, REFRESH_TOKEN, refreshExpiration);
     }
 
     public String extractEmail(String token) {
@@ -41,16 +136,137 @@ public class JwtService {
         }
     }
 
+    /**
+     * Verifies the signature and expiry of the token and returns its claims.
+     *
+     * @throws JwtException if the token is malformed, expired or not signed by a key in the ring
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
+    /**
+     * Verifies the token like {@link #parseClaims(String)} and also returns its header, whose {@code kid} names
+     * the key that verified it.
+     */
+    public Jws<Claims> parseSignedClaims(String token) {
+        return parser.parseSignedClaims(token);
+    }
+
+    /**
+     * Whether tokens signed under {@code keyId} still verify, i.e. the key has not been retired.
+     */
+    public boolean isVerificationKey(String keyId) {
+        return keyId != null && keyRing.get().keyIds().contains(keyId);
+    }
+
+    /**
+     * Verifies the token like {@link #parseClaims(String)} and additionally requires it to be a refresh token.
+     *
+     * @throws JwtException if the token is invalid or is not a refresh token
+     */
+    public Claims parseRefreshToken(String token) {
+        Claims claims = extractAllClaims(token);
+        if (!REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM, String.class))) {
+            throw new JwtException("Not a refresh token");
+        }
+        return claims;
+    }
+
+    /**
+     * Tokens issued before refresh tokens existed have no type and are treated as access tokens.
+     */
+    public static boolean isAccessToken(Claims claims) {
+        String type = claims.get(TOKEN_TYPE_CLAIM, String.class);
+        return type == null || ACCESS_TOKEN.equals(type);
+    }
+
+    /**
+     * Makes the given secret the signing key. Keys already in the ring stay valid for verification
+     * until {@link #retireKey(String)} is called, so tokens issued before the rotation keep working.
+     */
+    public void rotateKey(String newKeyId, String secret) {
+        SecretKey key = hmacKey(secret);
+        updateKeyRing(ring -> ring.withActiveKey(newKeyId, key, key));
+    }
+
+    /**
+     * Makes the given private key the signing key and publishes its public half. Verifiers that cache the
+     * JWKS should refetch it when they see an unknown {@code kid}.
+     */
+    public void rotateKey(String newKeyId, KeyPair keyPair) {
+        updateKeyRing(ring -> ring.withActiveKey(newKeyId, keyPair.getPrivate(), keyPair.getPublic()));
+    }
+
+    public void retireKey(String retiredKeyId) {
+        updateKeyRing(ring -> ring.without(retiredKeyId));
+    }
+
+    public Set<String> getActiveKeyIds() {
+        return keyRing.get().keyIds();
+    }
+
+    /**
+     * Public keys of the current ring as a JWK Set, rendered once per rotation.
+     */
+    public JwkSetDocument getJwkSet() {
+        return jwkSet;
+    }
+
+    /**
+     * Publishes the new key set before the new ring starts signing, so a token is never issued under a
+     * {@code kid} that the JWKS does not list yet.
+     */
+    private synchronized void updateKeyRing(UnaryOperator<JwtKeyRing> update) {
+        JwtKeyRing next = update.apply(keyRing.get());
+        jwkSet = JwkSetDocument.of(next.verificationKeys());
+        keyRing.set(next);
+    }
+
+    private KeyPair signingKeyPair() {
+        boolean ecdsa = "ES256".equalsIgnoreCase(signatureAlgorithm);
+        if (privateKey.isBlank()) {
+            log.warn("No jwt.private-key configured; generated a {} key pair, so tokens will not verify after a "
+                    + "restart or on other instances", signatureAlgorithm);
+            return ecdsa ? Jwts.SIG.ES256.keyPair().build() : Jwks.CRV.Ed25519.keyPair().build();
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(ecdsa ? "EC" : "Ed25519");
+            return new KeyPair(keyFactory.generatePublic(new X509EncodedKeySpec(pemBytes(publicKey))),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(pemBytes(privateKey))));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid jwt.private-key or jwt.public-key for " + signatureAlgorithm, e);
+        }
+    }
+
+    private static byte[] pemBytes(String pem) {
+        return Base64.getMimeDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", ""));
+    }
+
+    private String issue(TokenUser user, String type, long lifetime) {
+        JwtKeyRing ring = keyRing.get();
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .header().keyId(ring.activeKeyId()).and()
+                .id(UUID.randomUUID().toString())
+                .subject(user.email())
+                .claim(TOKEN_TYPE_CLAIM, type)
+                .claim(USER_ID_CLAIM, user.id())
+                .claim(ROLE_CLAIM, user.role() != null ? user.role().name() : null)
+                .claim(VERSION_CLAIM, user.version())
+                .claim(GIVEN_NAME_CLAIM, user.firstName())
+                .claim(FAMILY_NAME_CLAIM, user.lastName())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + lifetime))
+                .signWith(ring.signingKey())
+                .compact();
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static SecretKey hmacKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,213 @@
+package com.ecom.user.security;
+
+import com.ecom.user.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link PasswordEncoder} work on a dedicated pool of platform threads sized to the CPU count.
+ * The queue in front of the pool is bounded; once it is full, callers fail fast with
+ * {@link PasswordHashingUnavailableException} instead of tying up request threads behind BCrypt.
+ * Hash timings are tagged with the algorithm id of the hash, so a migration between algorithms or
+ * costs can be followed in the latency distribution.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String DUMMY_PASSWORD = "dummy-password-for-unknown-users";
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final Timer waitTimer;
+    private final Meter.MeterProvider<Timer> encodeTimers;
+    private final Meter.MeterProvider<Timer> matchesTimers;
+    private final Counter rejectedCounter;
+    private final AtomicLong typicalMatchesNanos = new AtomicLong();
+    private volatile String dummyHash;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                          @Value("${password-hashing.threads:0}") int threads,
+                          @Value("${password-hashing.queue-capacity:64}") int queueCapacity,
+                          @Value("${password-hashing.retry-after:1s}") Duration retryAfter) {
+        this.passwordEncoder = passwordEncoder;
+        this.retryAfter = retryAfter;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "password-hashing", Tags.empty()).bindTo(meterRegistry);
+
+        this.waitTimer = Timer.builder("password.hash.wait")
+                .description("Time a hashing task spent queued before a worker picked it up")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.encodeTimers = Timer.builder("password.hash")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.matchesTimers = Timer.builder("password.hash")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hash.rejected")
+                .description("Hashing requests rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> timedEncode(rawPassword));
+    }
+
+    /**
+     * Queues an encode without waiting for it. When the queue is full the returned future fails with
+     * {@link PasswordHashingUnavailableException}, so background work never blocks its caller.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                recordWait(queuedAt);
+                return timedEncode(rawPassword);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(rejected());
+        }
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Timer timer = matchesTimers.withTag("algorithm", algorithmOf(encodedPassword));
+        long start = System.nanoTime();
+        boolean matches = execute(() -> timer.recordCallable(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+        long elapsed = System.nanoTime() - start;
+        typicalMatchesNanos.accumulateAndGet(elapsed, (average, sample) -> average == 0 ? sample : average + (sample - average) / 8);
+        return matches;
+    }
+
+    /**
+     * Does the work of a failed {@link #matches} for a user that does not exist, so the caller takes as
+     * long as it would have for a wrong password. The dummy hash is made with the current encoder settings.
+     */
+    public void matchesDummy(CharSequence rawPassword) {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = encode(DUMMY_PASSWORD);
+            dummyHash = hash;
+        }
+        matches(rawPassword, hash);
+    }
+
+    /**
+     * Moving average of recent {@link #matches} calls, including time queued for the pool, or
+     * {@link Duration#ZERO} before the first one.
+     */
+    public Duration getTypicalMatchesTime() {
+        return Duration.ofNanos(typicalMatchesNanos.get());
+    }
+
+    /**
+     * Whether a stored hash should be replaced because its algorithm or cost differs from the current
+     * settings. This does not hash anything, so it runs on the caller's thread.
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private String timedEncode(CharSequence rawPassword) {
+        long start = System.nanoTime();
+        String encoded = passwordEncoder.encode(rawPassword);
+        encodeTimers.withTag("algorithm", algorithmOf(encoded)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return encoded;
+    }
+
+    private <T> T execute(Callable<T> hashing) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                recordWait(queuedAt);
+                return hashing.call();
+            });
+        } catch (RejectedExecutionException e) {
+            throw rejected();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private void recordWait(long queuedAt) {
+        waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private PasswordHashingUnavailableException rejected() {
+        rejectedCounter.increment();
+        return new PasswordHashingUnavailableException("Password hashing capacity exhausted, retry later", retryAfter);
+    }
+
+    /**
+     * The {@code {id}} prefix written by {@code DelegatingPasswordEncoder}; unprefixed hashes are BCrypt.
+     */
+    private static String algorithmOf(String encodedPassword) {
+        if (encodedPassword != null && encodedPassword.startsWith("{")) {
+            int end = encodedPassword.indexOf('}');
+            if (end > 1) {
+                return encodedPassword.substring(1, end);
+            }
+        }
+        return "bcrypt";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
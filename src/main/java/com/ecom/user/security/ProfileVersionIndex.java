@@ -0,0 +1,112 @@
+package com.ecom.user.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Latest profile version of each user changed recently, so claims from a token issued before the change can
+ * be recognised as stale without reading the user. Entries are kept for the refresh-token lifetime, after
+ * which every token issued before the change has expired.
+ * <p>
+ * Updates made on this instance are recorded as they commit. Those made anywhere else are read from the
+ * published {@code user_change_events} outbox every {@code jwt.profile-versions.sync-interval}; the first
+ * sync reads back one refresh-token lifetime, so a restarted instance also knows the updates made before it
+ * started. The version recorded is the user's current one, which is never older than the event's.
+ */
+@Component
+public class ProfileVersionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileVersionIndex.class);
+    private static final int SYNC_BATCH_SIZE = 1000;
+    private static final String UPDATED_VERSIONS_SQL = "select e.published_offset, u.id, u.version "
+            + "from user_change_events e join users u on u.id = e.user_id "
+            + "where e.published_offset > ? and e.type = 'UPDATED' and e.occurred_at >= ? "
+            + "order by e.published_offset limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration refreshExpiration;
+    private final Cache<Long, Long> versions;
+    private final Counter currentChecks;
+    private final Counter staleChecks;
+
+    /** Offset of the last outbox event read. */
+    private long syncedOffset;
+
+    public ProfileVersionIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                               @Value("${jwt.refresh-expiration:604800000}") long refreshExpirationMillis,
+                               @Value("${jwt.profile-versions.maximum-size:100000}") long maximumSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshExpiration = Duration.ofMillis(refreshExpirationMillis);
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(refreshExpiration)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "jwt.profile-versions");
+        this.currentChecks = Counter.builder("jwt.profile-version.checks")
+                .description("Token claims checked against the latest known profile version")
+                .tag("result", "current")
+                .register(meterRegistry);
+        this.staleChecks = Counter.builder("jwt.profile-version.checks")
+                .description("Token claims checked against the latest known profile version")
+                .tag("result", "stale")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the version a user's row has after a committed update; an older version never replaces a newer one.
+     */
+    public void recordChange(Long userId, long version) {
+        versions.asMap().merge(userId, version, Math::max);
+    }
+
+    /**
+     * Records the versions of users updated on any instance since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${jwt.profile-versions.sync-interval:1s}")
+    public synchronized void sync() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(refreshExpiration));
+        try {
+            List<Update> updates;
+            do {
+                updates = jdbcTemplate.query(UPDATED_VERSIONS_SQL,
+                        (rs, rowNum) -> new Update(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+                        syncedOffset, cutoff, SYNC_BATCH_SIZE);
+                for (Update update : updates) {
+                    recordChange(update.userId(), update.version());
+                    syncedOffset = update.offset();
+                }
+            } while (updates.size() == SYNC_BATCH_SIZE);
+        } catch (DataAccessException e) {
+            log.warn("Could not sync profile versions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether claims carrying {@code version} are older than the latest change recorded for the user.
+     */
+    public boolean isStale(Long userId, long version) {
+        Long latest = versions.getIfPresent(userId);
+        boolean stale = latest != null && latest > version;
+        (stale ? staleChecks : currentChecks).increment();
+        return stale;
+    }
+
+    private record Update(long offset, long userId, long version) {
+    }
+}
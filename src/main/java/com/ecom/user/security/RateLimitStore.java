@@ -0,0 +1,18 @@
+package com.ecom.user.security;
+
+import java.time.Duration;
+
+/**
+ * Counters behind sliding-window rate limits. {@link InMemoryRateLimitStore} keeps them per instance;
+ * a store shared between instances can replace it without changing the callers.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Counts an attempt against {@code key} if doing so keeps the sliding-window count within
+     * {@code limit}. Rejected attempts are not counted.
+     *
+     * @return {@link Duration#ZERO} if the attempt was counted, otherwise how long until it would be allowed
+     */
+    Duration tryAcquire(String key, int limit, Duration window);
+}
@@ -0,0 +1,249 @@
+package com.ecom.user.security;
+
+import com.ecom.user.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of every registered email, so logins for unknown addresses can be turned away
+ * without touching the database. It never forgets an email (changed addresses stay in as false
+ * positives) and answers "maybe" for everything until the initial load after startup has finished.
+ * Bits are set with compare-and-set, so registrations and the initial load can add concurrently.
+ * Emails are hashed in their normalized form, so a login's capitalization does not matter.
+ * <p>
+ * Users written by other instances or by imports reach the filter through the {@code user_change_events}
+ * outbox, which is followed every {@code login.email-filter.sync-interval}. A miss is only trusted while the
+ * last successful sync is younger than {@code login.email-filter.max-staleness}; a filter further behind
+ * answers "maybe". Rows written around the outbox, e.g. restored by hand, are picked up by the full reload
+ * every {@code login.email-filter.reload-interval}.
+ */
+@Component
+public class RegisteredEmailFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RegisteredEmailFilter.class);
+    private static final int LOAD_FETCH_SIZE = 1000;
+    static final int SYNC_BATCH_SIZE = 1000;
+    private static final String LAST_OFFSET_SQL = "select coalesce(max(published_offset), 0) from user_change_events";
+    private static final String PUBLISHED_CHANGES_SQL = "select published_offset, email from user_change_events "
+            + "where published_offset > ? order by published_offset limit ?";
+    // Committed but not yet given an offset by the publisher
+    private static final String UNPUBLISHED_CHANGES_SQL = "select id, email from user_change_events "
+            + "where published_offset is null and id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final Counter absentCounter;
+    private final Counter presentCounter;
+    private final Counter staleCounter;
+    private final long maxStalenessNanos;
+    private volatile boolean ready;
+    private volatile boolean loading;
+    /** Offset of the last outbox event added, and when the filter was last known to be current. */
+    private volatile long syncedOffset;
+    private volatile long syncedAt;
+
+    public RegisteredEmailFilter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                 @Value("${login.email-filter.expected-emails:1000000}") long expectedEmails,
+                                 @Value("${login.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                 @Value("${login.email-filter.max-staleness:10s}") Duration maxStaleness) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        long optimalBits = (long) Math.ceil(-expectedEmails * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedEmails * Math.log(2)));
+
+        this.absentCounter = probeCounter(meterRegistry, "absent");
+        this.presentCounter = probeCounter(meterRegistry, "maybe-present");
+        this.staleCounter = probeCounter(meterRegistry, "stale");
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("login.email-filter.ready", this, filter -> filter.isReady() ? 1 : 0)
+                .description("Whether the registered-email filter has loaded and is in sync with the outbox")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAsync() {
+        Thread.ofPlatform().name("email-filter-loader").daemon().start(this::load);
+    }
+
+    /**
+     * Re-reads every email, for rows that were written without an outbox event. The filter stays usable
+     * meanwhile, since a reload only ever adds bits.
+     */
+    @Scheduled(initialDelayString = "${login.email-filter.reload-interval:1h}",
+            fixedDelayString = "${login.email-filter.reload-interval:1h}")
+    public void reload() {
+        if (!loading) {
+            loadAsync();
+        }
+    }
+
+    /**
+     * Scans the users table. On the first load the outbox position is taken before the scan, so changes
+     * committed during it are replayed by the next {@link #sync()} rather than lost; later reloads leave the
+     * position to {@code sync()}, which keeps running meanwhile.
+     */
+    void load() {
+        loading = true;
+        long start = System.nanoTime();
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(LOAD_FETCH_SIZE);
+        long[] loaded = {0};
+        try {
+            Long offset = jdbcTemplate.queryForObject(LAST_OFFSET_SQL, Long.class);
+            streaming.query("select email from users", (RowCallbackHandler) rs -> {
+                add(rs.getString(1));
+                loaded[0]++;
+            });
+            if (!ready) {
+                syncedOffset = offset != null ? offset : 0;
+                syncedAt = start;
+                ready = true;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not load registered emails; logins will keep checking the database", e);
+            return;
+        } finally {
+            loading = false;
+        }
+        log.info("Loaded {} registered emails into the login filter in {} ms ({} bits, {} hashes)",
+                loaded[0], (System.nanoTime() - start) / 1_000_000, bitCount, hashCount);
+    }
+
+    /**
+     * Adds the emails of outbox events written since the last sync, including every one the publisher has
+     * not given an offset yet, so a bulk import or a stalled publisher cannot leave the filter current but
+     * incomplete. Events purged while syncs kept failing are covered by the next full reload.
+     */
+    @Scheduled(fixedDelayString = "${login.email-filter.sync-interval:1s}")
+    public void sync() {
+        if (!ready) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<Change> changes;
+            do {
+                changes = jdbcTemplate.query(PUBLISHED_CHANGES_SQL,
+                        (rs, rowNum) -> new Change(rs.getLong(1), rs.getString(2)), syncedOffset, SYNC_BATCH_SIZE);
+                for (Change change : changes) {
+                    add(change.email());
+                    syncedOffset = change.position();
+                }
+            } while (changes.size() == SYNC_BATCH_SIZE);
+            long lastId = 0;
+            do {
+                changes = jdbcTemplate.query(UNPUBLISHED_CHANGES_SQL,
+                        (rs, rowNum) -> new Change(rs.getLong(1), rs.getString(2)), lastId, SYNC_BATCH_SIZE);
+                for (Change change : changes) {
+                    add(change.email());
+                    lastId = change.position();
+                }
+            } while (changes.size() == SYNC_BATCH_SIZE);
+            syncedAt = start;
+        } catch (DataAccessException e) {
+            log.warn("Could not sync the login email filter: {}", e.getMessage());
+        }
+    }
+
+    public void add(String email) {
+        long hash = hash(User.normalizeEmail(email));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = bits.get(index)) & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * {@code false} only if the email has definitely never been registered; {@code true} means the
+     * database has to be asked.
+     */
+    public boolean mightContain(String email) {
+        if (!ready) {
+            return true;
+        }
+        if (System.nanoTime() - syncedAt > maxStalenessNanos) {
+            staleCounter.increment();
+            return true;
+        }
+        long hash = hash(User.normalizeEmail(email));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                absentCounter.increment();
+                return false;
+            }
+        }
+        presentCounter.increment();
+        return true;
+    }
+
+    /**
+     * Whether the initial load has finished and the filter has synced within the staleness bound.
+     */
+    public boolean isReady() {
+        return ready && System.nanoTime() - syncedAt <= maxStalenessNanos;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer; the two halves seed
+     * double hashing.
+     */
+    private static long hash(String email) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            hash ^= email.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static Counter probeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("login.email-filter.probes")
+                .description("Login email lookups answered by the registered-email filter")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /** An outbox event's email and where it sits: its offset once published, its id before that. */
+    private record Change(long position, String email) {
+    }
+}
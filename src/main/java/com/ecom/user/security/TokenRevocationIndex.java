@@ -0,0 +1,87 @@
+package com.ecom.user.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Denylist of revoked token ids, bucketed by the minute in which each token expires. A lookup only
+ * touches the bucket of the token's own {@code exp}, and whole buckets are dropped once every token in
+ * them has expired, so the index never holds more than the tokens that would still be accepted.
+ * Revocations are kept per instance.
+ */
+@Component
+public class TokenRevocationIndex {
+
+    private static final long BUCKET_MILLIS = 60_000;
+
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final LongSupplier currentTimeMillis;
+
+    @Autowired
+    public TokenRevocationIndex(MeterRegistry meterRegistry) {
+        this(meterRegistry, System::currentTimeMillis);
+    }
+
+    TokenRevocationIndex(MeterRegistry meterRegistry, LongSupplier currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+        Gauge.builder("jwt.revoked-tokens", size, AtomicLong::get)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Revokes the token with the given id until its expiry.
+     *
+     * @return {@code false} if it was already revoked or has already expired
+     */
+    public boolean revoke(String jti, Date expiration) {
+        long bucket = bucketOf(expiration.getTime());
+        long current = bucketOf(currentTimeMillis.getAsLong());
+        purgeBefore(current);
+        if (bucket < current) {
+            return false;
+        }
+        boolean added = buckets.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet()).add(jti);
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    public boolean isRevoked(String jti, Date expiration) {
+        if (jti == null || expiration == null) {
+            return false;
+        }
+        purgeBefore(bucketOf(currentTimeMillis.getAsLong()));
+        Set<String> bucket = buckets.get(bucketOf(expiration.getTime()));
+        return bucket != null && bucket.contains(jti);
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    private void purgeBefore(long currentBucket) {
+        Map.Entry<Long, Set<String>> oldest;
+        while ((oldest = buckets.firstEntry()) != null && oldest.getKey() < currentBucket) {
+            if (buckets.remove(oldest.getKey(), oldest.getValue())) {
+                size.addAndGet(-oldest.getValue().size());
+            }
+        }
+    }
+
+    private static long bucketOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, BUCKET_MILLIS);
+    }
+}
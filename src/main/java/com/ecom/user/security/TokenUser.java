@@ -0,0 +1,38 @@
+package com.ecom.user.security;
+
+import com.ecom.user.model.Role;
+import io.jsonwebtoken.Claims;
+
+import java.security.Principal;
+
+/**
+ * The user a token was issued to, as recorded in its claims. It is the principal of authenticated requests,
+ * so handlers can read the id, role and profile without a lookup. Tokens issued before these claims existed
+ * only carry the email; {@link #hasProfile()} is then {@code false}.
+ */
+public record TokenUser(Long id, String email, Role role, Long version, String firstName, String lastName)
+        implements Principal {
+
+    /**
+     * @throws IllegalArgumentException if the role claim is not a known role
+     */
+    public static TokenUser from(Claims claims) {
+        String role = claims.get(JwtService.ROLE_CLAIM, String.class);
+        return new TokenUser(
+                claims.get(JwtService.USER_ID_CLAIM, Long.class),
+                claims.getSubject(),
+                role != null ? Role.valueOf(role) : null,
+                claims.get(JwtService.VERSION_CLAIM, Long.class),
+                claims.get(JwtService.GIVEN_NAME_CLAIM, String.class),
+                claims.get(JwtService.FAMILY_NAME_CLAIM, String.class));
+    }
+
+    public boolean hasProfile() {
+        return id != null && role != null && version != null;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
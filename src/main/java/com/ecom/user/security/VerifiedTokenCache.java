@@ -0,0 +1,103 @@
+package com.ecom.user.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of tokens that already passed signature verification, keyed by the SHA-256 of the token.
+ * Each entry expires at the token's own {@code exp}, so a cached token is never accepted past its lifetime.
+ * Entries remember the {@code kid} that verified them and are only served while that key is still in the
+ * ring, so retiring a key rejects its tokens at once. Tokens without a {@code kid} are not cached.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(MeterRegistry meterRegistry,
+                              @Value("${jwt.cache.maximum-size:100000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    /**
+     * Returns the cached claims for the token if the key that verified it passes {@code isVerificationKey},
+     * or runs {@code verifier} and caches its result. Exceptions thrown by the verifier propagate and nothing
+     * is cached.
+     */
+    public Claims getVerifiedClaims(String token, Function<String, Jws<Claims>> verifier,
+                                    Predicate<String> isVerificationKey) {
+        String hash = hash(token);
+        VerifiedToken cached = cache.getIfPresent(hash);
+        if (cached != null) {
+            if (isVerificationKey.test(cached.keyId())) {
+                return cached.claims();
+            }
+            cache.asMap().remove(hash, cached);
+        }
+        Jws<Claims> verified = verifier.apply(token);
+        String keyId = verified.getHeader().getKeyId();
+        if (keyId != null) {
+            cache.put(hash, new VerifiedToken(verified.getPayload(), keyId));
+        }
+        return verified.getPayload();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private record VerifiedToken(Claims claims, String keyId) {
+    }
+
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String hash, VerifiedToken token, long currentTime) {
+            Claims claims = token.claims();
+            if (claims.getExpiration() == null) {
+                return 0;
+            }
+            long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return millis > 0 ? TimeUnit.MILLISECONDS.toNanos(millis) : 0;
+        }
+
+        @Override
+        public long expireAfterUpdate(String hash, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(hash, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String hash, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ecom.user.service;
+
+import com.ecom.user.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fills {@code users.normalized_email} for rows written before the column existed. It walks the table in id
+ * order, one chunk per short transaction, so only the rows of the current chunk are ever locked. Runs before
+ * the application reports itself ready, since email lookups only see normalized rows; once every row is
+ * filled it costs one index probe per startup.
+ * <p>
+ * A row whose address differs only in case from another user's cannot be normalized without breaking the
+ * unique index, and would be unreachable by email. Every other row is still filled, then the backfill fails
+ * with the ids of the clashing users, so the instance does not start until they are merged by hand.
+ */
+@Component
+public class NormalizedEmailBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(NormalizedEmailBackfill.class);
+    private static final String NEXT_CHUNK_SQL =
+            "SELECT id, email FROM users WHERE id > ? AND normalized_email IS NULL ORDER BY id LIMIT ?";
+    private static final String UPDATE_SQL =
+            "UPDATE users SET normalized_email = ? WHERE id = ? AND normalized_email IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public NormalizedEmailBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   @Value("${users.email-backfill.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfill();
+    }
+
+    /**
+     * Returns the number of rows normalized.
+     *
+     * @throws IllegalStateException if some rows clash in case with another user's email
+     */
+    long backfill() {
+        long start = System.nanoTime();
+        long normalized = 0;
+        long lastId = 0;
+        List<Long> clashes = new ArrayList<>();
+        List<PendingRow> chunk;
+        while (!(chunk = jdbcTemplate.query(NEXT_CHUNK_SQL,
+                (rs, rowNum) -> new PendingRow(rs.getLong(1), rs.getString(2)), lastId, chunkSize)).isEmpty()) {
+            normalized += normalize(chunk, clashes);
+            lastId = chunk.get(chunk.size() - 1).id();
+        }
+        if (normalized > 0) {
+            log.info("Normalized the emails of {} users in {} ms", normalized, (System.nanoTime() - start) / 1_000_000);
+        }
+        if (!clashes.isEmpty()) {
+            throw new IllegalStateException("Emails of users " + clashes
+                    + " differ only in case from other users'; merge these accounts before starting the service");
+        }
+        return normalized;
+    }
+
+    private int normalize(List<PendingRow> rows, List<Long> clashes) {
+        try {
+            return transactionTemplate.execute(status -> update(rows));
+        } catch (DuplicateKeyException e) {
+            // Some address in the chunk clashes once lower-cased; settle the chunk row by row.
+            int normalized = 0;
+            for (PendingRow row : rows) {
+                try {
+                    normalized += transactionTemplate.execute(status -> update(List.of(row)));
+                } catch (DuplicateKeyException duplicate) {
+                    log.error("Email of user {} differs only in case from another user's; not normalized", row.id());
+                    clashes.add(row.id());
+                }
+            }
+            return normalized;
+        }
+    }
+
+    private int update(List<PendingRow> rows) {
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PendingRow row = rows.get(i);
+                ps.setString(1, User.normalizeEmail(row.email()));
+                ps.setLong(2, row.id());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        return (int) Arrays.stream(counts).filter(count -> count > 0 || count == Statement.SUCCESS_NO_INFO).count();
+    }
+
+    private record PendingRow(long id, String email) {
+    }
+}
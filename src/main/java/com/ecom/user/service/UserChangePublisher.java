@@ -0,0 +1,182 @@
+package com.ecom.user.service;
+
+import com.ecom.user.dto.UserChangeEventResponse;
+import com.ecom.user.model.UserChangeEvent;
+import com.ecom.user.repository.UserChangeEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the {@code user_change_events} outbox as a feed with gap-free, increasing offsets.
+ * <p>
+ * Rows are written unpublished by the transactions that change users. A poller hands out offsets to them in
+ * id order, so a transaction that commits late gets a later offset instead of leaving a hole that readers
+ * have already skipped. Subscribers are notified with each published batch after its offsets are committed;
+ * a subscriber that falls behind catches up by reading the table from its last offset. Offsets are kept in
+ * memory between polls and read back from the highest offset in the table on startup, which is why expiry
+ * never deletes the newest published event. Only one instance should publish; a second one fails on the
+ * unique offset index rather than hand out duplicates.
+ */
+@Service
+public class UserChangePublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangePublisher.class);
+
+    private final UserChangeEventRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter publishedEvents;
+    private final Set<Consumer<List<UserChangeEventResponse>>> subscribers = new CopyOnWriteArraySet<>();
+
+    /** Highest committed offset, or -1 until read from the table. */
+    private volatile long lastOffset = -1;
+
+    public UserChangePublisher(UserChangeEventRepository repository, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${users.changes.batch-size:500}") int batchSize,
+                               @Value("${users.changes.retention:7d}") Duration retention) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.publishedEvents = Counter.builder("users.changes.published")
+                .description("User change events assigned an offset and delivered to subscribers")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${users.changes.poll-interval:200ms}")
+    public void publishPending() {
+        try {
+            while (publishBatch() == batchSize) {
+                // keep draining while full batches come back
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not publish user change events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Assigns offsets to up to {@code users.changes.batch-size} unpublished events and notifies subscribers.
+     *
+     * @return the number of events published
+     */
+    synchronized int publishBatch() {
+        long from = getLastOffset();
+        List<UserChangeEventResponse> published;
+        try {
+            published = transactionTemplate.execute(status -> {
+                List<UserChangeEvent> pending = repository.findByPublishedOffsetIsNullOrderByIdAsc(Limit.of(batchSize));
+                List<UserChangeEventResponse> batch = new ArrayList<>(pending.size());
+                long offset = from;
+                for (UserChangeEvent event : pending) {
+                    event.setPublishedOffset(++offset);
+                    batch.add(toResponse(event));
+                }
+                return batch;
+            });
+        } catch (RuntimeException e) {
+            // Another publisher may have taken these offsets; start again from what is committed
+            lastOffset = -1;
+            throw e;
+        }
+        if (published.isEmpty()) {
+            return 0;
+        }
+        lastOffset = published.getLast().getOffset();
+        publishedEvents.increment(published.size());
+        for (Consumer<List<UserChangeEventResponse>> subscriber : subscribers) {
+            try {
+                subscriber.accept(published);
+            } catch (RuntimeException e) {
+                log.warn("User change subscriber failed: {}", e.getMessage());
+            }
+        }
+        return published.size();
+    }
+
+    @Scheduled(fixedDelayString = "${users.changes.cleanup-interval:1h}")
+    public void purgeExpired() {
+        Long lastPublished = repository.findMaxPublishedOffset();
+        if (lastPublished == null) {
+            return;
+        }
+        // The newest published event is always kept: offsets resume from it after a restart
+        int deleted = repository.deletePublishedBefore(LocalDateTime.now().minus(retention), lastPublished);
+        if (deleted > 0) {
+            log.info("Deleted {} user change events older than {}", deleted, retention);
+        }
+    }
+
+    /**
+     * Registers a callback for every published batch, called on the publishing thread; it should hand off
+     * anything slow. Run the returned action to unsubscribe.
+     */
+    public Runnable subscribe(Consumer<List<UserChangeEventResponse>> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public long getLastOffset() {
+        long offset = lastOffset;
+        return offset >= 0 ? offset : loadLastOffset();
+    }
+
+    private synchronized long loadLastOffset() {
+        if (lastOffset < 0) {
+            Long max = repository.findMaxPublishedOffset();
+            lastOffset = max == null ? 0 : max;
+        }
+        return lastOffset;
+    }
+
+    public List<UserChangeEventResponse> readAfter(long offset, int limit) {
+        return repository.findByPublishedOffsetGreaterThanOrderByPublishedOffsetAsc(offset, Limit.of(limit)).stream()
+                .map(UserChangePublisher::toResponse)
+                .toList();
+    }
+
+    /**
+     * Events after {@code offset}, taken from a just-published {@code batch} when it continues directly from
+     * that offset and read from the table otherwise.
+     */
+    public List<UserChangeEventResponse> eventsAfter(long offset, List<UserChangeEventResponse> batch, int limit) {
+        if (batch.isEmpty() || batch.getFirst().getOffset() > offset + 1) {
+            return readAfter(offset, limit);
+        }
+        return batch.stream()
+                .filter(event -> event.getOffset() > offset)
+                .limit(limit)
+                .toList();
+    }
+
+    private static UserChangeEventResponse toResponse(UserChangeEvent event) {
+        return new UserChangeEventResponse(
+                event.getPublishedOffset(),
+                event.getType(),
+                event.getUserId(),
+                event.getEmail(),
+                event.getPreviousEmail(),
+                event.getFirstName(),
+                event.getLastName(),
+                event.getRole(),
+                event.getOccurredAt()
+        );
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecom.user.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streams the {@code users} table as NDJSON, one {@code UserResponse}-shaped object per line, in id order.
+ * Rows are read through a forward-only JDBC cursor and written with Jackson's streaming generator as they
+ * arrive, bypassing Hibernate, so memory use is the same for ten users or ten million.
+ */
+@Service
+public class UserExportService {
+
+    private static final String EXPORT_SQL =
+            "SELECT id, email, first_name, last_name, role, created_at, version FROM users WHERE id > ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public UserExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${users.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes every user with an id greater than {@code afterId} to {@code output}, flushing after each
+     * fetched batch. A client that lost the connection resumes by passing the last id it received.
+     *
+     * @return the number of users written
+     */
+    public long exportUsers(long afterId, OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.setRootValueSeparator(null);
+        long[] exported = {0};
+        try {
+            // Some drivers (PostgreSQL) only honour the fetch size inside a transaction
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, afterId);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    writeUser(generator, rs);
+                    if (++exported[0] % fetchSize == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+        return exported[0];
+    }
+
+    private static void writeUser(JsonGenerator generator, ResultSet rs) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rs.getLong(1));
+        generator.writeStringField("email", rs.getString(2));
+        generator.writeStringField("firstName", rs.getString(3));
+        generator.writeStringField("lastName", rs.getString(4));
+        generator.writeStringField("role", rs.getString(5));
+        Timestamp createdAt = rs.getTimestamp(6);
+        generator.writeStringField("createdAt",
+                createdAt == null ? null : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(createdAt.toLocalDateTime()));
+        generator.writeNumberField("version", rs.getLong(7));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,387 @@
+package com.ecom.user.service;
+
+import com.ecom.user.dto.UserImportResult;
+import com.ecom.user.dto.UserImportRow;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import com.ecom.user.search.UserSearchIndex;
+import com.ecom.user.security.RegisteredEmailFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Streams users from NDJSON or CSV into the {@code users} table in fixed-size chunks.
+ * Each chunk is deduplicated against itself and against the database with one {@code IN} query,
+ * has its plain-text passwords hashed in parallel, and is written with a single JDBC batch insert.
+ * One result line is written per input row as soon as its chunk completes, so memory use does not
+ * grow with the size of the upload.
+ */
+@Service
+public class UserImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users (email, normalized_email, password, first_name, last_name, role, created_at, "
+                    + "updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_CHANGE_EVENT_SQL =
+            "INSERT INTO user_change_events (user_id, type, email, first_name, last_name, role, occurred_at) "
+                    + "VALUES (?, 'CREATED', ?, ?, ?, ?, ?)";
+    private static final String EXISTING_EMAILS_SQL =
+            "SELECT normalized_email FROM users WHERE normalized_email IN (:emails)";
+    // Only the encodings the password encoder can verify: BCrypt, bare or {bcrypt}-prefixed, and {argon2}
+    private static final Pattern ENCODED_PASSWORD = Pattern.compile("^((\\{bcrypt})?\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}"
+            + "|\\{argon2}\\$argon2(id|i|d)\\$v=\\d+\\$m=\\d+,t=\\d+,p=\\d+\\$[A-Za-z0-9+/]+\\$[A-Za-z0-9+/]+)$");
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final RegisteredEmailFilter registeredEmails;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader jsonRowReader;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final Validator validator;
+    private final UserSearchIndex searchIndex;
+    private final ExecutorService hashingExecutor;
+    private final int chunkSize;
+
+    public UserImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             PasswordEncoder passwordEncoder, RegisteredEmailFilter registeredEmails,
+                             UserSearchIndex searchIndex, ObjectMapper objectMapper, Validator validator,
+                             @Value("${users.import.chunk-size:500}") int chunkSize,
+                             @Value("${users.import.hashing-threads:0}") int hashingThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.registeredEmails = registeredEmails;
+        this.searchIndex = searchIndex;
+        this.objectMapper = objectMapper;
+        this.jsonRowReader = objectMapper.readerFor(UserImportRow.class);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        // Leave half of the cores to interactive logins, which hash on PasswordHasher's pool.
+        int threads = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashingExecutor = Executors.newFixedThreadPool(threads, new ImportHashingThreadFactory());
+    }
+
+    /**
+     * Imports every row from {@code input} and writes one {@link UserImportResult} per row to
+     * {@code output} as NDJSON. CSV input must start with a header line naming the columns.
+     */
+    public void importUsers(InputStream input, Format format, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        ObjectReader rowReader = jsonRowReader;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            if (header == null) {
+                return;
+            }
+            lineNumber++;
+            rowReader = csvRowReader(header);
+        }
+
+        List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(parse(rowReader, lineNumber, line));
+            if (chunk.size() == chunkSize) {
+                write(importChunk(chunk), output);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            write(importChunk(chunk), output);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    private List<UserImportResult> importChunk(List<ParsedRow> rows) {
+        UserImportResult[] results = new UserImportResult[rows.size()];
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ParsedRow parsed = rows.get(i);
+            if (parsed.error() != null) {
+                results[i] = UserImportResult.invalid(parsed.line(), parsed.email(), parsed.error());
+            } else if (candidates.putIfAbsent(parsed.normalizedEmail(), i) != null) {
+                results[i] = UserImportResult.duplicate(parsed.line(), parsed.email(),
+                        "Email appears more than once in this import");
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            for (String existing : findExistingEmails(candidates.keySet())) {
+                int index = candidates.remove(existing);
+                results[index] = alreadyExists(rows.get(index));
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            List<Integer> indexes = new ArrayList<>(candidates.values());
+            List<ParsedRow> toInsert = indexes.stream().map(rows::get).toList();
+            List<UserImportResult> inserted = insert(toInsert, hashPasswords(toInsert));
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = inserted.get(i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Which of the given normalized emails are taken, matched case-insensitively like registrations.
+     */
+    private List<String> findExistingEmails(Collection<String> emails) {
+        return namedParameterJdbcTemplate.queryForList(EXISTING_EMAILS_SQL, Map.of("emails", emails), String.class);
+    }
+
+    private List<String> hashPasswords(List<ParsedRow> rows) {
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        for (ParsedRow parsed : rows) {
+            UserImportRow row = parsed.row();
+            if (row.getPasswordHash() != null) {
+                hashes.add(CompletableFuture.completedFuture(row.getPasswordHash()));
+            } else {
+                hashes.add(hashingExecutor.submit(() -> passwordEncoder.encode(row.getPassword())));
+            }
+        }
+
+        List<String> encoded = new ArrayList<>(rows.size());
+        try {
+            for (Future<String> hash : hashes) {
+                encoded.add(hash.get());
+            }
+        } catch (InterruptedException e) {
+            hashes.forEach(hash -> hash.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing imported passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to hash imported password", e.getCause());
+        }
+        return encoded;
+    }
+
+    private List<UserImportResult> insert(List<ParsedRow> rows, List<String> passwordHashes) {
+        try {
+            List<Long> ids = transactionTemplate.execute(status -> insertBatch(rows, passwordHashes));
+            List<UserImportResult> results = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                results.add(created(rows.get(i), ids.get(i)));
+            }
+            return results;
+        } catch (DuplicateKeyException e) {
+            // Someone registered one of these emails after the existence check; settle the chunk row by row.
+            List<UserImportResult> results = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                ParsedRow row = rows.get(i);
+                try {
+                    String passwordHash = passwordHashes.get(i);
+                    Long id = transactionTemplate.execute(status ->
+                            insertBatch(List.of(row), List.of(passwordHash)).get(0));
+                    results.add(created(row, id));
+                } catch (DuplicateKeyException duplicate) {
+                    results.add(alreadyExists(row));
+                }
+            }
+            return results;
+        }
+    }
+
+    private List<Long> insertBatch(List<ParsedRow> rows, List<String> passwordHashes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        rows.forEach(row -> registeredEmails.add(row.email()));
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        UserImportRow row = rows.get(i).row();
+                        Role role = row.getRole() != null ? row.getRole() : Role.BUYER;
+                        ps.setString(1, row.getEmail());
+                        ps.setString(2, rows.get(i).normalizedEmail());
+                        ps.setString(3, passwordHashes.get(i));
+                        ps.setString(4, row.getFirstName());
+                        ps.setString(5, row.getLastName());
+                        ps.setString(6, role.name());
+                        ps.setTimestamp(7, now);
+                        ps.setTimestamp(8, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keyHolder);
+        List<Long> ids = keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .toList();
+        insertChangeEvents(rows, ids, now);
+        return ids;
+    }
+
+    /**
+     * Writes the outbox rows for a batch of new users; must run in the transaction that inserted them.
+     */
+    private void insertChangeEvents(List<ParsedRow> rows, List<Long> ids, Timestamp now) {
+        jdbcTemplate.batchUpdate(INSERT_CHANGE_EVENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UserImportRow row = rows.get(i).row();
+                ps.setLong(1, ids.get(i));
+                ps.setString(2, row.getEmail());
+                ps.setString(3, row.getFirstName());
+                ps.setString(4, row.getLastName());
+                ps.setString(5, (row.getRole() != null ? row.getRole() : Role.BUYER).name());
+                ps.setTimestamp(6, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private ParsedRow parse(ObjectReader rowReader, long lineNumber, String line) {
+        UserImportRow row;
+        try {
+            row = rowReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return new ParsedRow(lineNumber, null, "Malformed row: " + e.getOriginalMessage());
+        }
+
+        Set<ConstraintViolation<UserImportRow>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new ParsedRow(lineNumber, row, message);
+        }
+        boolean hasPassword = row.getPassword() != null && !row.getPassword().isBlank();
+        boolean hasPasswordHash = row.getPasswordHash() != null && !row.getPasswordHash().isBlank();
+        if (hasPassword == hasPasswordHash) {
+            return new ParsedRow(lineNumber, row, "Exactly one of password or passwordHash is required");
+        }
+        if (hasPasswordHash && !ENCODED_PASSWORD.matcher(row.getPasswordHash()).matches()) {
+            return new ParsedRow(lineNumber, row, "passwordHash must be a BCrypt or {argon2} encoded password");
+        }
+        if (!hasPasswordHash) {
+            row.setPasswordHash(null);
+        }
+        return new ParsedRow(lineNumber, row, null);
+    }
+
+    private ObjectReader csvRowReader(String header) {
+        CsvSchema.Builder schema = CsvSchema.builder();
+        for (String column : header.split(",")) {
+            schema.addColumn(column.trim().replace("\"", ""));
+        }
+        return csvMapper.readerFor(UserImportRow.class)
+                .with(schema.build())
+                .with(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    private void write(List<UserImportResult> results, OutputStream output) throws IOException {
+        for (UserImportResult result : results) {
+            output.write(objectMapper.writeValueAsBytes(result));
+            output.write(NEWLINE);
+        }
+        output.flush();
+    }
+
+    /**
+     * Called once the row's transaction has committed, so the search index never points at a rolled-back user.
+     */
+    private UserImportResult created(ParsedRow row, Long id) {
+        searchIndex.add(id, row.email(), row.row().getFirstName(), row.row().getLastName());
+        return UserImportResult.created(row.line(), row.email(), id);
+    }
+
+    private static UserImportResult alreadyExists(ParsedRow row) {
+        return UserImportResult.duplicate(row.line(), row.email(), "User with email " + row.email() + " already exists");
+    }
+
+    private record ParsedRow(long line, UserImportRow row, String error) {
+
+        String email() {
+            return row != null ? row.getEmail() : null;
+        }
+
+        String normalizedEmail() {
+            return User.normalizeEmail(email());
+        }
+    }
+
+    private static final class ImportHashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "import-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,103 +1,508 @@
 package com.ecom.user.service;
 
+import com.ecom.user.cache.UserCache;
 import com.ecom.user.dto.*;
+import com.ecom.user.exception.InvalidCredentialsException;
+import com.ecom.user.exception.InvalidTokenException;
+import com.ecom.user.exception.PreconditionFailedException;
 import com.ecom.user.exception.UserAlreadyExistsException;
 import com.ecom.user.exception.UserNotFoundException;
 import com.ecom.user.model.Role;
 import com.ecom.user.model.User;
+import com.ecom.user.model.UserChangeEvent;
+import com.ecom.user.repository.UserChangeEventRepository;
+import com.ecom.user.repository.UserCredentials;
+import com.ecom.user.repository.UserPageCursor;
 import com.ecom.user.repository.UserRepository;
+import com.ecom.user.repository.UserVersion;
+import com.ecom.user.search.UserSearchIndex;
 import com.ecom.user.security.JwtService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.ecom.user.security.LoginAttemptLimiter;
+import com.ecom.user.security.PasswordHasher;
+import com.ecom.user.security.ProfileVersionIndex;
+import com.ecom.user.security.RegisteredEmailFilter;
+import com.ecom.user.security.TokenRevocationIndex;
+import com.ecom.user.security.TokenUser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int BATCH_QUERY_CHUNK_SIZE = 500;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_SEARCH_RESULTS = 100;
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
+    private final UserCache userCache;
+    private final LoginAttemptLimiter loginAttemptLimiter;
+    private final RegisteredEmailFilter registeredEmails;
+    private final TokenRevocationIndex revocationIndex;
+    private final UserChangeEventRepository changeEvents;
+    private final TransactionTemplate transactionTemplate;
+    private final UserSearchIndex searchIndex;
+    private final ProfileVersionIndex profileVersions;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public UserService(UserRepository userRepository, PasswordHasher passwordHasher, JwtService jwtService,
+                       UserCache userCache, LoginAttemptLimiter loginAttemptLimiter,
+                       RegisteredEmailFilter registeredEmails, TokenRevocationIndex revocationIndex,
+                       UserChangeEventRepository changeEvents, PlatformTransactionManager transactionManager,
+                       UserSearchIndex searchIndex, ProfileVersionIndex profileVersions) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.loginAttemptLimiter = loginAttemptLimiter;
+        this.registeredEmails = registeredEmails;
+        this.revocationIndex = revocationIndex;
+        this.changeEvents = changeEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchIndex = searchIndex;
+        this.profileVersions = profileVersions;
     }
 
+    /**
+     * The password is hashed before the transaction starts, so no connection is held during the hash; the
+     * user row and its change event are then written in one short transaction.
+     */
     public UserResponse register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new UserAlreadyExistsException("User with email " + request.getEmail() + " already exists");
-        }
-
         User user = new User();
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHasher.encode(request.getPassword()));
+        registeredEmails.add(request.getEmail());
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setRole(request.getRole() != null ? request.getRole() : Role.BUYER);
 
-        User savedUser = userRepository.save(user);
-        return mapToUserResponse(savedUser);
+        User savedUser;
+        try {
+            savedUser = transactionTemplate.execute(status -> {
+                User saved = userRepository.save(user);
+                changeEvents.save(UserChangeEvent.of(UserChangeEvent.Type.CREATED, saved, null));
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw translateEmailConflict(request.getEmail(), e);
+        }
+        UserResponse response = mapToUserResponse(savedUser);
+        userCache.put(response);
+        searchIndex.add(savedUser.getId(), savedUser.getEmail(), savedUser.getFirstName(), savedUser.getLastName());
+        return response;
     }
 
-    public LoginResponse login(LoginRequest request) {
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + request.getEmail()));
+    /**
+     * Unknown emails and wrong passwords fail the same way and take about as long: an email the
+     * filter has never seen waits out a typical password check, and one that passes the filter but
+     * is not in the database is checked against a dummy hash.
+     */
+    public LoginResponse login(LoginRequest request, String clientIp) {
+        loginAttemptLimiter.acquire(request.getEmail(), clientIp);
+        if (!registeredEmails.mightContain(request.getEmail())) {
+            awaitTypicalPasswordCheck(request.getPassword());
+            throw new InvalidCredentialsException();
+        }
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            throw new IllegalArgumentException("Invalid password");
+        UserCredentials credentials = userRepository.findCredentialsByNormalizedEmail(
+                User.normalizeEmail(request.getEmail())).orElse(null);
+        if (credentials == null) {
+            passwordHasher.matchesDummy(request.getPassword());
+            throw new InvalidCredentialsException();
+        }
+        if (!passwordHasher.matches(request.getPassword(), credentials.password())) {
+            throw new InvalidCredentialsException();
+        }
+        if (passwordHasher.upgradeEncoding(credentials.password())) {
+            rehashPassword(credentials.id(), credentials.password(), request.getPassword());
         }
 
-        String token = jwtService.generateToken(user.getEmail());
-        return new LoginResponse(token, user.getEmail(), user.getRole());
+        return issueTokens(new TokenUser(credentials.id(), credentials.email(), credentials.role(),
+                credentials.version(), credentials.firstName(), credentials.lastName()));
+    }
+
+    /**
+     * Exchanges a refresh token for a new access/refresh pair without touching the password hash. The
+     * presented refresh token is revoked in the same step, so each one can be used once; of two concurrent
+     * refreshes with the same token only the first succeeds. The new pair is built from the refresh token's
+     * claims unless they are known to be stale, in which case the user is read again.
+     */
+    public LoginResponse refreshToken(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtService.parseRefreshToken(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException();
+        }
+        if (claims.getId() == null || !revocationIndex.revoke(claims.getId(), claims.getExpiration())) {
+            throw new InvalidTokenException();
+        }
+        TokenUser user;
+        try {
+            user = TokenUser.from(claims);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException();
+        }
+        if (!user.hasProfile() || profileVersions.isStale(user.id(), user.version())) {
+            user = loadCurrentUser(user).map(UserService::toTokenUser).orElseThrow(InvalidTokenException::new);
+        }
+        return issueTokens(user);
+    }
+
+    /**
+     * The caller's profile, answered from the claims of their access token. The database is only read for
+     * tokens that predate the profile claims or that were issued before a change this instance recorded.
+     */
+    public CurrentUserResponse getCurrentUser(TokenUser user) {
+        if (user.hasProfile() && !profileVersions.isStale(user.id(), user.version())) {
+            return new CurrentUserResponse(user.id(), user.email(), user.firstName(), user.lastName(), user.role(),
+                    user.version());
+        }
+        User current = loadCurrentUser(user)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + user.email()));
+        return new CurrentUserResponse(current.getId(), current.getEmail(), current.getFirstName(),
+                current.getLastName(), current.getRole(), current.getVersion());
+    }
+
+    /**
+     * Revokes an access or refresh token until it expires. Tokens that do not verify are ignored, so
+     * revoking is idempotent and reveals nothing about the token.
+     */
+    public void revokeToken(String token) {
+        Claims claims;
+        try {
+            claims = jwtService.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
+        if (claims.getId() != null) {
+            revocationIndex.revoke(claims.getId(), claims.getExpiration());
+        }
+    }
+
+    private LoginResponse issueTokens(TokenUser user) {
+        return new LoginResponse(jwtService.generateToken(user), jwtService.generateRefreshToken(user),
+                user.email(), user.role());
+    }
+
+    /** Looked up by id, since the email in older claims may have changed since. */
+    private Optional<User> loadCurrentUser(TokenUser user) {
+        return user.id() != null
+                ? userRepository.findById(user.id())
+                : userRepository.findByNormalizedEmail(User.normalizeEmail(user.email()));
+    }
+
+    private void awaitTypicalPasswordCheck(String rawPassword) {
+        Duration typical = passwordHasher.getTypicalMatchesTime();
+        if (typical.isZero()) {
+            passwordHasher.matchesDummy(rawPassword);
+            return;
+        }
+        try {
+            Thread.sleep(typical);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Re-encodes a password with the current algorithm and cost once it has been verified, without
+     * delaying the login. Skipped if the hashing pool is saturated; the next login tries again.
+     */
+    private void rehashPassword(Long id, String currentHash, String rawPassword) {
+        passwordHasher.encodeAsync(rawPassword)
+                .thenAccept(newHash -> userRepository.updatePasswordHash(id, currentHash, newHash))
+                .exceptionally(e -> {
+                    log.warn("Could not rehash password for user {}: {}", id, e.getMessage());
+                    return null;
+                });
     }
 
     public UserResponse getUserById(Long id) {
-        User user = userRepository.findById(id)
+        return userCache.getById(id, key -> userRepository.findById(key).map(UserService::mapToUserResponse))
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
-        return mapToUserResponse(user);
     }
 
     public UserResponse getUserByEmail(String email) {
-        User user = userRepository.findByEmail(email)
+        return userCache.getByEmail(email, key -> userRepository.findByNormalizedEmail(User.normalizeEmail(key))
+                        .map(UserService::mapToUserResponse))
                 .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
-        return mapToUserResponse(user);
     }
 
+    /**
+     * The id and version of a user, for answering conditional requests: taken from the cached user when there
+     * is one, otherwise read with a two-column query, so a revalidation never loads or caches the full user.
+     */
+    public Optional<UserVersion> findUserVersion(Long id) {
+        Optional<UserResponse> cached = userCache.peekById(id);
+        if (cached.isPresent()) {
+            return cached.map(UserService::versionOf);
+        }
+        return userRepository.findVersionById(id);
+    }
+
+    public Optional<UserVersion> findUserVersionByEmail(String email) {
+        Optional<UserResponse> cached = userCache.peekByEmail(email);
+        if (cached.isPresent()) {
+            return cached.map(UserService::versionOf);
+        }
+        return userRepository.findVersionByNormalizedEmail(User.normalizeEmail(email));
+    }
+
+    public UserBatchResponse getUsersByIds(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " ids can be requested at once");
+        }
+
+        Map<Long, UserResponse> found = userCache.getAllById(requested, this::loadUsersByIds);
+        Map<Long, UserResponse> users = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            UserResponse user = found.get(id);
+            if (user != null) {
+                users.put(id, user);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new UserBatchResponse(users, missing);
+    }
+
+    /**
+     * One page of users, newest first. Reads one row more than requested to know whether another page
+     * follows, and hands out the position of the last row as the next cursor.
+     */
+    public UserPageResponse listUsers(Role role, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                      String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        UserPageCursor after = cursor == null || cursor.isBlank() ? null : UserPageCursor.decode(cursor);
+        List<UserResponse> users = userRepository.findPage(role, createdFrom, createdTo, after, limit + 1);
+        if (users.size() <= limit) {
+            return new UserPageResponse(users, null);
+        }
+        List<UserResponse> page = users.subList(0, limit);
+        UserResponse last = page.get(limit - 1);
+        return new UserPageResponse(page, new UserPageCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    /**
+     * Users whose email or name starts with every word of {@code query}, answered from the in-memory
+     * search index and the user cache; users deleted since they were indexed are left out.
+     */
+    public List<UserResponse> searchUsers(String query, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+        List<Long> ids = searchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserResponse> users = getUsersByIds(ids).getUsers();
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Applies the non-null fields of {@code request}. The entity is updated through dirty checking, so a
+     * change costs one SELECT, one UPDATE of the changed columns and the outbox INSERT. A new password is
+     * hashed before the transaction starts.
+     */
     public UserResponse updateUser(Long id, RegisterRequest request) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+        String passwordHash = request.getPassword() != null && !request.getPassword().isBlank()
+                ? passwordHasher.encode(request.getPassword())
+                : null;
 
-        if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
-            if (userRepository.existsByEmail(request.getEmail())) {
-                throw new UserAlreadyExistsException("User with email " + request.getEmail() + " already exists");
+        return transactionTemplate.execute(status -> {
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+            String previousEmail = user.getEmail();
+            String previousFirstName = user.getFirstName();
+            String previousLastName = user.getLastName();
+
+            if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
+                user.setEmail(request.getEmail());
+                registeredEmails.add(request.getEmail());
+            }
+            if (passwordHash != null) {
+                user.setPassword(passwordHash);
             }
-            user.setEmail(request.getEmail());
+            if (request.getFirstName() != null) {
+                user.setFirstName(request.getFirstName());
+            }
+            if (request.getLastName() != null) {
+                user.setLastName(request.getLastName());
+            }
+            if (request.getRole() != null) {
+                user.setRole(request.getRole());
+            }
+
+            return saveChanges(user, previousEmail, previousFirstName, previousLastName);
+        });
+    }
+
+    /**
+     * Applies a JSON Merge Patch. With {@code acceptedVersions}, taken from {@code If-Match}, the patch only
+     * applies while the user is at one of those versions. The row is read without a lock, and the UPDATE
+     * lists only the changed columns and is guarded by the version that was read, so a concurrent change
+     * makes it fail instead of being overwritten. A new password is hashed before the transaction starts.
+     */
+    public UserResponse patchUser(Long id, UserPatchRequest patch, Set<Long> acceptedVersions) {
+        requireValue(patch, "email", patch.getEmail());
+        requireValue(patch, "password", patch.getPassword());
+        requireValue(patch, "role", patch.getRole());
+        String passwordHash = patch.has("password") ? passwordHasher.encode(patch.getPassword()) : null;
+
+        try {
+            return transactionTemplate.execute(status -> {
+                User user = userRepository.findById(id)
+                        .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+                if (acceptedVersions != null && !acceptedVersions.contains(user.getVersion())) {
+                    throw new PreconditionFailedException("User " + id + " is at version " + user.getVersion());
+                }
+                String previousEmail = user.getEmail();
+                String previousFirstName = user.getFirstName();
+                String previousLastName = user.getLastName();
+
+                if (patch.has("email") && !patch.getEmail().equals(user.getEmail())) {
+                    user.setEmail(patch.getEmail());
+                    registeredEmails.add(patch.getEmail());
+                }
+                if (passwordHash != null) {
+                    user.setPassword(passwordHash);
+                }
+                if (patch.has("firstName")) {
+                    user.setFirstName(patch.getFirstName());
+                }
+                if (patch.has("lastName")) {
+                    user.setLastName(patch.getLastName());
+                }
+                if (patch.has("role")) {
+                    user.setRole(patch.getRole());
+                }
+                return saveChanges(user, previousEmail, previousFirstName, previousLastName);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            if (acceptedVersions == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException("User " + id + " was changed concurrently");
+        }
+    }
+
+    /**
+     * Flushes the changes of a loaded user and writes its change event; caches and the search index follow
+     * once the transaction commits. A taken email surfaces as a unique-constraint violation on flush.
+     */
+    private UserResponse saveChanges(User user, String previousEmail, String previousFirstName,
+                                     String previousLastName) {
+        Long id = user.getId();
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateEmailConflict(user.getEmail(), e);
         }
-        if (request.getPassword() != null && !request.getPassword().isBlank()) {
-            user.setPassword(passwordEncoder.encode(request.getPassword()));
+        String currentEmail = user.getEmail();
+        changeEvents.save(UserChangeEvent.of(UserChangeEvent.Type.UPDATED, user,
+                currentEmail.equals(previousEmail) ? null : previousEmail));
+        String firstName = user.getFirstName();
+        String lastName = user.getLastName();
+        long version = user.getVersion();
+        afterCommit(() -> {
+            userCache.invalidate(id, previousEmail, currentEmail);
+            profileVersions.recordChange(id, version);
+            searchIndex.update(id, previousEmail, previousFirstName, previousLastName, currentEmail, firstName, lastName);
+        });
+        return mapToUserResponse(user);
+    }
+
+    private Map<Long, UserResponse> loadUsersByIds(Set<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        Map<Long, UserResponse> loaded = new HashMap<>();
+        for (int from = 0; from < idList.size(); from += BATCH_QUERY_CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + BATCH_QUERY_CHUNK_SIZE, idList.size()));
+            userRepository.findAllById(chunk).forEach(user -> loaded.put(user.getId(), mapToUserResponse(user)));
         }
-        if (request.getFirstName() != null) {
-            user.setFirstName(request.getFirstName());
+        return loaded;
+    }
+
+    private static void requireValue(UserPatchRequest patch, String field, Object value) {
+        if (patch.has(field) && (value == null || value instanceof String text && text.isBlank())) {
+            throw new IllegalArgumentException(field + " cannot be removed");
         }
-        if (request.getLastName() != null) {
-            user.setLastName(request.getLastName());
+    }
+
+    private static RuntimeException translateEmailConflict(String email, DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        String lowerCaseMessage = message != null ? message.toLowerCase(Locale.ROOT) : "";
+        if (lowerCaseMessage.contains(User.EMAIL_CONSTRAINT)
+                || lowerCaseMessage.contains(User.NORMALIZED_EMAIL_CONSTRAINT)) {
+            return new UserAlreadyExistsException("User with email " + email + " already exists");
         }
-        if (request.getRole() != null) {
-            user.setRole(request.getRole());
+        return e;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static UserVersion versionOf(UserResponse user) {
+        return new UserVersion(user.getId(), user.getVersion());
+    }
 
-        User updatedUser = userRepository.save(user);
-        return mapToUserResponse(updatedUser);
+    private static TokenUser toTokenUser(User user) {
+        return new TokenUser(user.getId(), user.getEmail(), user.getRole(), user.getVersion(), user.getFirstName(),
+                user.getLastName());
     }
 
-    private UserResponse mapToUserResponse(User user) {
+    static UserResponse mapToUserResponse(User user) {
         return new UserResponse(
                 user.getId(),
                 user.getEmail(),
                 user.getFirstName(),
                 user.getLastName(),
                 user.getRole(),
-                user.getCreatedAt()
+                user.getCreatedAt(),
+                user.getVersion()
         );
     }
 }
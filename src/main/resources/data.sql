@@ -1,11 +1,11 @@
-INSERT INTO users (email, password, first_name, last_name, role, created_at, updated_at) VALUES
-('alice.johnson@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Alice', 'Johnson', 'BUYER', NOW(), NOW()),
-('bob.smith@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Bob', 'Smith', 'SELLER', NOW(), NOW()),
-('carol.williams@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Carol', 'Williams', 'ADMIN', NOW(), NOW()),
-('dave.brown@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Dave', 'Brown', 'BUYER', NOW(), NOW()),
-('eve.davis@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Eve', 'Davis', 'SELLER', NOW(), NOW()),
-('frank.miller@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Frank', 'Miller', 'BUYER', NOW(), NOW()),
-('grace.wilson@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Grace', 'Wilson', 'SELLER', NOW(), NOW()),
-('hank.moore@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Hank', 'Moore', 'ADMIN', NOW(), NOW()),
-('ivy.taylor@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Ivy', 'Taylor', 'BUYER', NOW(), NOW()),
-('jack.anderson@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Jack', 'Anderson', 'SELLER', NOW(), NOW());
+INSERT INTO users (email, normalized_email, password, first_name, last_name, role, created_at, updated_at, version) VALUES
+('alice.johnson@example.com', 'alice.johnson@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Alice', 'Johnson', 'BUYER', NOW(), NOW(), 0),
+('bob.smith@example.com', 'bob.smith@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Bob', 'Smith', 'SELLER', NOW(), NOW(), 0),
+('carol.williams@example.com', 'carol.williams@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Carol', 'Williams', 'ADMIN', NOW(), NOW(), 0),
+('dave.brown@example.com', 'dave.brown@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Dave', 'Brown', 'BUYER', NOW(), NOW(), 0),
+('eve.davis@example.com', 'eve.davis@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Eve', 'Davis', 'SELLER', NOW(), NOW(), 0),
+('frank.miller@example.com', 'frank.miller@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Frank', 'Miller', 'BUYER', NOW(), NOW(), 0),
+('grace.wilson@example.com', 'grace.wilson@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Grace', 'Wilson', 'SELLER', NOW(), NOW(), 0),
+('hank.moore@example.com', 'hank.moore@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Hank', 'Moore', 'ADMIN', NOW(), NOW(), 0),
+('ivy.taylor@example.com', 'ivy.taylor@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Ivy', 'Taylor', 'BUYER', NOW(), NOW(), 0),
+('jack.anderson@example.com', 'jack.anderson@example.com', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', 'Jack', 'Anderson', 'SELLER', NOW(), NOW(), 0);
@@ -0,0 +1,153 @@
+package com.ecom.user.cache;
+
+import com.ecom.user.dto.UserResponse;
+import com.ecom.user.model.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserCache userCache = new UserCache(meterRegistry, 100, Duration.ofMinutes(1));
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getById_ShouldShareOneLoadBetweenConcurrentMisses() throws Exception {
+        UserResponse user = user(1L, "john@example.com");
+        List<Future<Optional<UserResponse>>> results = callConcurrently(
+                () -> userCache.getById(1L, blockingLoader(Optional.of(user))), "id");
+
+        for (Future<Optional<UserResponse>> result : results) {
+            assertEquals(Optional.of(user), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS - 1, collapsed("id"));
+        assertEquals(Optional.of(user), userCache.getById(1L, key -> fail("should be cached")));
+    }
+
+    @Test
+    void getByEmail_ShouldGiveEveryWaiterTheMissWhenUserDoesNotExist() throws Exception {
+        List<Future<Optional<UserResponse>>> results = callConcurrently(
+                () -> userCache.getByEmail("nobody@example.com", blockingLoader(Optional.empty())), "email");
+
+        for (Future<Optional<UserResponse>> result : results) {
+            assertEquals(Optional.empty(), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        // Misses are not cached, and nothing is left in flight
+        assertEquals(Optional.empty(), userCache.getByEmail("nobody@example.com", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getById_ShouldRethrowLoaderFailureToEveryWaiter() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+        List<Future<Optional<UserResponse>>> results = callConcurrently(() -> userCache.getById(1L, key -> {
+            loads.incrementAndGet();
+            await();
+            throw failure;
+        }), "id");
+
+        for (Future<Optional<UserResponse>> result : results) {
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, thrown.getCause());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getById_ShouldNotJoinLoadStartedBeforeAnInvalidation() throws Exception {
+        Future<Optional<UserResponse>> stale = executor.submit(
+                () -> userCache.getById(1L, blockingLoader(Optional.of(user(1L, "old@example.com")))));
+        while (loads.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        userCache.invalidate(1L, "old@example.com");
+        Optional<UserResponse> fresh = userCache.getById(1L, key -> Optional.of(user(1L, "new@example.com")));
+        release.countDown();
+
+        assertEquals("new@example.com", fresh.orElseThrow().getEmail());
+        assertEquals("old@example.com", stale.get(5, TimeUnit.SECONDS).orElseThrow().getEmail());
+        assertEquals(0, collapsed("id"));
+    }
+
+    @Test
+    void getByEmail_ShouldMatchCachedUserRegardlessOfCase() {
+        UserResponse user = user(1L, "John@Example.com");
+        userCache.put(user);
+
+        assertEquals(Optional.of(user), userCache.getByEmail("john@EXAMPLE.com", key -> fail("should be cached")));
+
+        userCache.invalidate(1L, "JOHN@example.com");
+        assertEquals(Optional.empty(), userCache.peekByEmail("john@example.com"));
+    }
+
+    /** Starts {@link #CALLERS} calls and returns once all but the loading one are waiting on it. */
+    private <T> List<Future<T>> callConcurrently(Callable<T> call, String key) {
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(call));
+        }
+        while (collapsed(key) < CALLERS - 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        return results;
+    }
+
+    private <K> Function<K, Optional<UserResponse>> blockingLoader(Optional<UserResponse> result) {
+        return key -> {
+            loads.incrementAndGet();
+            await();
+            return result;
+        };
+    }
+
+    private void await() {
+        try {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double collapsed(String key) {
+        return meterRegistry.get("users.cache.load.collapsed").tag("key", key).counter().count();
+    }
+
+    private static UserResponse user(Long id, String email) {
+        return new UserResponse(id, email, "John", "Doe", Role.BUYER, null, 0L);
+    }
+}
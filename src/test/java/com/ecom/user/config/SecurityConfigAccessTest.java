@@ -0,0 +1,61 @@
+package com.ecom.user.config;
+
+import com.ecom.user.model.Role;
+import com.ecom.user.security.JwtService;
+import com.ecom.user.security.TokenUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:accessrules",
+        "password-hashing.bcrypt.strength=4",
+        "eureka.client.enabled=false"
+})
+class SecurityConfigAccessTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void importUsers_ShouldBeForbidden_ForNonAdmins() throws Exception {
+        mockMvc.perform(post("/api/users/import")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(Role.BUYER))
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"email\":\"mallory@example.com\",\"password\":\"password123\",\"role\":\"ADMIN\"}\n"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/users/import")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(Role.ADMIN))
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void exportUsers_ShouldBeForbidden_ForNonAdmins() throws Exception {
+        mockMvc.perform(get("/api/users/export").header(HttpHeaders.AUTHORIZATION, bearer(Role.BUYER)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/export").header(HttpHeaders.AUTHORIZATION, bearer(Role.ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    private String bearer(Role role) {
+        return "Bearer " + jwtService.generateToken(
+                new TokenUser(1L, "john.doe@example.com", role, 0L, "John", "Doe"));
+    }
+}
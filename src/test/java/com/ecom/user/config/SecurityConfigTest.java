@@ -0,0 +1,48 @@
+package com.ecom.user.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityConfigTest {
+
+    private final SecurityConfig securityConfig = new SecurityConfig();
+
+    @Test
+    void passwordEncoder_ShouldVerifyLegacyHashesAndAskToUpgradeThem() {
+        PasswordEncoder encoder = passwordEncoder("bcrypt");
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + legacy));
+
+        String current = encoder.encode("secret");
+        assertTrue(current.startsWith("{bcrypt}$2a$05$"));
+        assertFalse(encoder.upgradeEncoding(current));
+    }
+
+    @Test
+    void passwordEncoder_ShouldMigrateBCryptHashesToArgon2() {
+        PasswordEncoder bcrypt = passwordEncoder("bcrypt");
+        PasswordEncoder argon2 = passwordEncoder("argon2");
+        String bcryptHash = bcrypt.encode("secret");
+
+        assertTrue(argon2.matches("secret", bcryptHash));
+        assertTrue(argon2.upgradeEncoding(bcryptHash));
+
+        String argon2Hash = argon2.encode("secret");
+        assertTrue(argon2Hash.startsWith("{argon2}$argon2id$"));
+        assertTrue(argon2.matches("secret", argon2Hash));
+        assertFalse(argon2.upgradeEncoding(argon2Hash));
+        assertTrue(bcrypt.matches("secret", argon2Hash));
+    }
+
+    private PasswordEncoder passwordEncoder(String algorithm) {
+        return securityConfig.passwordEncoder(algorithm, 5, Duration.ofMillis(250), 10, 14, 1, 1024, 1, 1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecom.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadRequestLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualThreadRequestLimitFilter filter = new VirtualThreadRequestLimitFilter(
+            new ObjectMapper(), meterRegistry, 1, Duration.ofMillis(10), Duration.ofMillis(1_500));
+
+    @Test
+    void filter_ShouldRejectRequestsBeyondTheLimit_WithRetryAfter() throws Exception {
+        AtomicReference<MockHttpServletResponse> rejected = new AtomicReference<>();
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users/1"), admitted, (request, response) -> {
+            MockHttpServletResponse second = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/users/2"), second, (req, res) -> fail());
+            rejected.set(second);
+        });
+
+        assertEquals(200, admitted.getStatus());
+        assertEquals(503, rejected.get().getStatus());
+        assertEquals("2", rejected.get().getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("http.server.requests.limited").counter().count());
+    }
+
+    @Test
+    void filter_ShouldReleaseThePermit_WhenTheRequestCompletes() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users/1"), new MockHttpServletResponse(),
+                (request, response) -> { });
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users/1"), response, (req, res) -> { });
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0.0, meterRegistry.get("http.server.requests.in.progress").gauge().value());
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecom.user.controller;
+
+import com.ecom.user.security.JwkSetDocument;
+import com.ecom.user.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(JwksController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class JwksControllerTest {
+
+    private static final JwkSetDocument JWK_SET = new JwkSetDocument(
+            "{\"keys\":[{\"kty\":\"OKP\",\"crv\":\"Ed25519\",\"x\":\"abc\",\"kid\":\"primary\",\"use\":\"sig\"}]}",
+            "\"etag-1\"");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @Test
+    void jwks_ShouldReturnKeySetWithCachingHeaders() throws Exception {
+        when(jwtService.getJwkSet()).thenReturn(JWK_SET);
+
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(JwksController.JWK_SET_MEDIA_TYPE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"etag-1\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=600, public"))
+                .andExpect(jsonPath("$.keys[0].kid").value("primary"));
+    }
+
+    @Test
+    void jwks_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        when(jwtService.getJwkSet()).thenReturn(JWK_SET);
+
+        mockMvc.perform(get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, "\"etag-1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+}
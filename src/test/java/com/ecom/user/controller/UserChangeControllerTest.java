@@ -0,0 +1,146 @@
+package com.ecom.user.controller;
+
+import com.ecom.user.dto.RegisterRequest;
+import com.ecom.user.model.Role;
+import com.ecom.user.security.JwtService;
+import com.ecom.user.security.TokenUser;
+import com.ecom.user.service.UserChangePublisher;
+import com.ecom.user.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs against its own in-memory database so publishers of other cached test contexts cannot take its events.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:changefeed",
+        "password-hashing.bcrypt.strength=4",
+        "users.changes.poll-interval=50ms",
+        "eureka.client.enabled=false"
+})
+class UserChangeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserChangePublisher publisher;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private String bearer;
+
+    @BeforeEach
+    void setUp() {
+        bearer = "Bearer " + jwtService.generateToken(
+                new TokenUser(3L, "carol.williams@example.com", Role.ADMIN, 0L, "Carol", "Williams"));
+    }
+
+    @Test
+    void poll_ShouldAnswerWithChangesCommittedWhileWaiting() throws Exception {
+        long after = publisher.getLastOffset();
+        MvcResult pending = mockMvc.perform(get("/api/users/changes")
+                        .param("after", Long.toString(after))
+                        .param("wait", "10")
+                        .header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String email = register();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events[0].offset").value(after + 1))
+                .andExpect(jsonPath("$.events[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.events[0].email").value(email))
+                .andExpect(jsonPath("$.lastOffset").value(after + 1));
+    }
+
+    @Test
+    void changes_ShouldBeForbidden_ForNonAdmins() throws Exception {
+        String buyer = "Bearer " + jwtService.generateToken(
+                new TokenUser(1L, "john.doe@example.com", Role.BUYER, 0L, "John", "Doe"));
+
+        mockMvc.perform(get("/api/users/changes").param("wait", "0").header(HttpHeaders.AUTHORIZATION, buyer))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/changes/stream").header(HttpHeaders.AUTHORIZATION, buyer))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void poll_ShouldReturnEmptyBatchRightAway_WhenNotWaiting() throws Exception {
+        long after = publisher.getLastOffset();
+        MvcResult result = mockMvc.perform(get("/api/users/changes")
+                        .param("after", Long.toString(after))
+                        .param("wait", "0")
+                        .header(HttpHeaders.AUTHORIZATION, bearer))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events").isEmpty())
+                .andExpect(jsonPath("$.lastOffset").value(after));
+    }
+
+    @Test
+    void stream_ShouldResumeAfterLastEventId() throws Exception {
+        long after = publisher.getLastOffset();
+        register();
+        String second = register();
+        publisher.publishPending();
+
+        MvcResult stream = mockMvc.perform(get("/api/users/changes/stream")
+                        .header("Last-Event-ID", Long.toString(after + 1))
+                        .header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = awaitContent(stream, "id:" + (after + 2));
+        assertTrue(body.contains("event:CREATED"));
+        assertTrue(body.contains(second));
+        assertFalse(body.contains("id:" + (after + 1) + "\n"));
+    }
+
+    @Test
+    void changes_ShouldRequireAuthentication() throws Exception {
+        mockMvc.perform(get("/api/users/changes").param("wait", "0"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String register() {
+        String email = "feed-" + UUID.randomUUID() + "@example.com";
+        userService.register(new RegisterRequest(email, "password123", "Feed", "User", Role.BUYER));
+        return email;
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            body = result.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains(expected), body);
+        return body;
+    }
+}
@@ -1,26 +1,57 @@
 package com.ecom.user.controller;
 
+import com.ecom.user.dto.CurrentUserResponse;
 import com.ecom.user.dto.LoginRequest;
 import com.ecom.user.dto.LoginResponse;
 import com.ecom.user.dto.RegisterRequest;
+import com.ecom.user.dto.TokenRequest;
+import com.ecom.user.dto.UserBatchResponse;
+import com.ecom.user.dto.UserPageResponse;
 import com.ecom.user.dto.UserResponse;
+import com.ecom.user.exception.InvalidCredentialsException;
+import com.ecom.user.exception.InvalidTokenException;
+import com.ecom.user.exception.PasswordHashingUnavailableException;
+import com.ecom.user.exception.TooManyLoginAttemptsException;
 import com.ecom.user.exception.UserAlreadyExistsException;
 import com.ecom.user.exception.UserNotFoundException;
 import com.ecom.user.model.Role;
+import com.ecom.user.repository.UserVersion;
+import com.ecom.user.security.TokenUser;
+import com.ecom.user.service.UserExportService;
+import com.ecom.user.service.UserImportService;
 import com.ecom.user.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,13 +66,19 @@ class UserControllerTest {
     @MockitoBean
     private UserService userService;
 
+    @MockitoBean
+    private UserImportService userImportService;
+
+    @MockitoBean
+    private UserExportService userExportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Test
     void register_ShouldReturnCreated() throws Exception {
         RegisterRequest request = new RegisterRequest("test@example.com", "password123", "John", "Doe", Role.BUYER);
-        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now());
+        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now(), 0L);
 
         when(userService.register(any(RegisterRequest.class))).thenReturn(response);
 
@@ -65,28 +102,214 @@ class UserControllerTest {
         mockMvc.perform(post("/api/users/register")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isConflict());
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.detail").value("User with email test@example.com already exists"));
+    }
+
+    @Test
+    void register_ShouldListFieldErrors_WhenRequestInvalid() throws Exception {
+        RegisterRequest request = new RegisterRequest("not-an-email", "password123", "John", "Doe", Role.BUYER);
+
+        mockMvc.perform(post("/api/users/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.detail").value("Validation failed"))
+                .andExpect(jsonPath("$.errors.email").exists());
+    }
+
+    @Test
+    void importUsers_ShouldStreamResultsAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(2);
+            output.write("{\"line\":1,\"status\":\"CREATED\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(userImportService).importUsers(any(InputStream.class), eq(UserImportService.Format.CSV),
+                any(OutputStream.class));
+
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("text/csv")
+                        .content("email,password\nnew@example.com,password123\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"line\":1,\"status\":\"CREATED\"}\n"));
+    }
+
+    @Test
+    void exportUsers_ShouldStreamNdjson() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("{\"id\":6}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(userExportService).exportUsers(eq(5L), any(OutputStream.class));
+
+        mockMvc.perform(get("/api/users/export").param("afterId", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("{\"id\":6}\n"));
+    }
+
+    @Test
+    void exportUsers_ShouldGzip_WhenClientAcceptsIt() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(userExportService).exportUsers(eq(0L), any(OutputStream.class));
+
+        byte[] body = mockMvc.perform(get("/api/users/export").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (InputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("{\"id\":1}\n", new String(gunzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
     }
 
     @Test
     void login_ShouldReturnOk() throws Exception {
         LoginRequest request = new LoginRequest("test@example.com", "password123");
-        LoginResponse response = new LoginResponse("jwt-token", "test@example.com", Role.BUYER);
+        LoginResponse response = new LoginResponse("jwt-token", "refresh-token", "test@example.com", Role.BUYER);
 
-        when(userService.login(any(LoginRequest.class))).thenReturn(response);
+        when(userService.login(any(LoginRequest.class), eq("127.0.0.1"))).thenReturn(response);
 
         mockMvc.perform(post("/api/users/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("refresh-token"))
                 .andExpect(jsonPath("$.email").value("test@example.com"))
                 .andExpect(jsonPath("$.role").value("BUYER"));
     }
 
+    @Test
+    void listUsers_ShouldPassFiltersAndReturnNextCursor() throws Exception {
+        UserResponse user = new UserResponse(7L, "seller@example.com", "Sam", "Seller", Role.SELLER,
+                LocalDateTime.of(2024, 3, 1, 9, 30), 0L);
+        when(userService.listUsers(Role.SELLER, LocalDateTime.of(2024, 1, 1, 0, 0), null, "abc", 20))
+                .thenReturn(new UserPageResponse(List.of(user), "next"));
+
+        mockMvc.perform(get("/api/users")
+                        .param("role", "SELLER")
+                        .param("createdFrom", "2024-01-01T00:00:00")
+                        .param("cursor", "abc")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id").value(7))
+                .andExpect(jsonPath("$.users[0].password").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void searchUsers_ShouldReturnMatchingUsers() throws Exception {
+        UserResponse user = new UserResponse(1L, "alice.johnson@example.com", "Alice", "Johnson", Role.BUYER,
+                LocalDateTime.now(), 0L);
+        when(userService.searchUsers("ali jo", 20)).thenReturn(List.of(user));
+
+        mockMvc.perform(get("/api/users/search").param("q", "ali jo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("alice.johnson@example.com"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
+    @Test
+    void refreshToken_ShouldReturnNewPair() throws Exception {
+        when(userService.refreshToken("refresh-token"))
+                .thenReturn(new LoginResponse("new-access", "new-refresh", "test@example.com", Role.BUYER));
+
+        mockMvc.perform(post("/api/users/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TokenRequest("refresh-token"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("new-access"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh"));
+    }
+
+    @Test
+    void refreshToken_ShouldReturnUnauthorized_WhenTokenInvalid() throws Exception {
+        when(userService.refreshToken("used-token")).thenThrow(new InvalidTokenException());
+
+        mockMvc.perform(post("/api/users/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TokenRequest("used-token"))))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.detail").value("Invalid or expired refresh token"));
+    }
+
+    @Test
+    void login_ShouldReturnServiceUnavailable_WhenHashingSaturated() throws Exception {
+        LoginRequest request = new LoginRequest("test@example.com", "password123");
+
+        when(userService.login(any(LoginRequest.class), eq("127.0.0.1")))
+                .thenThrow(new PasswordHashingUnavailableException("Password hashing capacity exhausted, retry later",
+                        Duration.ofMillis(1_900)));
+
+        mockMvc.perform(post("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+
+    @Test
+    void login_ShouldReturnUnauthorized_WhenCredentialsAreInvalid() throws Exception {
+        LoginRequest request = new LoginRequest("unknown@example.com", "password123");
+
+        when(userService.login(any(LoginRequest.class), eq("127.0.0.1"))).thenThrow(new InvalidCredentialsException());
+
+        mockMvc.perform(post("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(401))
+                .andExpect(jsonPath("$.title").value("Unauthorized"))
+                .andExpect(jsonPath("$.detail").value("Invalid email or password"))
+                .andExpect(jsonPath("$.instance").value("/api/users/login"))
+                .andExpect(jsonPath("$.timestamp").doesNotExist());
+    }
+
+    @Test
+    void login_ShouldReturnTooManyRequests_WhenThrottled() throws Exception {
+        LoginRequest request = new LoginRequest("test@example.com", "password123");
+
+        when(userService.login(any(LoginRequest.class), eq("127.0.0.1")))
+                .thenThrow(new TooManyLoginAttemptsException("Too many login attempts for this account, retry later",
+                        Duration.ofSeconds(30)));
+
+        mockMvc.perform(post("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.detail").value("Too many login attempts for this account, retry later"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getCurrentUser_ShouldPassTokenUserToService() throws Exception {
+        TokenUser user = new TokenUser(7L, "seller@example.com", Role.SELLER, 2L, "Sam", "Seller");
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, List.of()));
+        when(userService.getCurrentUser(user))
+                .thenReturn(new CurrentUserResponse(7L, "seller@example.com", "Sam", "Seller", Role.SELLER, 2L));
+
+        mockMvc.perform(get("/api/users/me"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.role").value("SELLER"))
+                .andExpect(jsonPath("$.version").value(2));
+    }
+
     @Test
     void getUserById_ShouldReturnOk() throws Exception {
-        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now());
+        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now(), 0L);
 
         when(userService.getUserById(1L)).thenReturn(response);
 
@@ -96,6 +319,41 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.email").value("test@example.com"));
     }
 
+    @Test
+    void getUserById_ShouldReturnETagOfIdAndVersion() throws Exception {
+        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now(), 3L);
+        when(userService.getUserById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(jsonPath("$.version").value(3));
+        verify(userService, never()).findUserVersion(any());
+    }
+
+    @Test
+    void getUserById_ShouldReturnNotModifiedWithoutLoadingUser_WhenETagMatches() throws Exception {
+        when(userService.findUserVersion(1L)).thenReturn(Optional.of(new UserVersion(1L, 3L)));
+
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"1-2\", W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(content().string(""));
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    void getUserByEmail_ShouldReturnUser_WhenETagIsStale() throws Exception {
+        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now(), 4L);
+        when(userService.findUserVersionByEmail("test@example.com")).thenReturn(Optional.of(new UserVersion(1L, 4L)));
+        when(userService.getUserByEmail("test@example.com")).thenReturn(response);
+
+        mockMvc.perform(get("/api/users/email/test@example.com").header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""))
+                .andExpect(jsonPath("$.email").value("test@example.com"));
+    }
+
     @Test
     void getUserById_ShouldReturnNotFound() throws Exception {
         when(userService.getUserById(99L)).thenThrow(new UserNotFoundException("User not found with id: 99"));
@@ -104,9 +362,22 @@ class UserControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getUsersByIds_ShouldReturnFoundUsersAndMissingIds() throws Exception {
+        UserResponse user = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now(), 0L);
+
+        when(userService.getUsersByIds(List.of(1L, 2L)))
+                .thenReturn(new UserBatchResponse(Map.of(1L, user), List.of(2L)));
+
+        mockMvc.perform(get("/api/users/batch").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.1.email").value("test@example.com"))
+                .andExpect(jsonPath("$.missing[0]").value(2));
+    }
+
     @Test
     void getUserByEmail_ShouldReturnOk() throws Exception {
-        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now());
+        UserResponse response = new UserResponse(1L, "test@example.com", "John", "Doe", Role.BUYER, LocalDateTime.now(), 0L);
 
         when(userService.getUserByEmail("test@example.com")).thenReturn(response);
 
@@ -118,7 +389,7 @@ class UserControllerTest {
     @Test
     void updateUser_ShouldReturnOk() throws Exception {
         RegisterRequest request = new RegisterRequest("updated@example.com", "newpass", "Jane", "Smith", Role.SELLER);
-        UserResponse response = new UserResponse(1L, "updated@example.com", "Jane", "Smith", Role.SELLER, LocalDateTime.now());
+        UserResponse response = new UserResponse(1L, "updated@example.com", "Jane", "Smith", Role.SELLER, LocalDateTime.now(), 0L);
 
         when(userService.updateUser(eq(1L), any(RegisterRequest.class))).thenReturn(response);
 
@@ -129,4 +400,59 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.email").value("updated@example.com"))
                 .andExpect(jsonPath("$.firstName").value("Jane"));
     }
+
+    @Test
+    void patchUser_ShouldPassIfMatchVersionsAndReturnNewETag() throws Exception {
+        UserResponse response = new UserResponse(1L, "test@example.com", "John", null, Role.SELLER, LocalDateTime.now(), 4L);
+        when(userService.patchUser(eq(1L), argThat(patch -> patch.has("lastName") && patch.getLastName() == null
+                && patch.getRole() == Role.SELLER && !patch.has("email")), eq(Set.of(3L)))).thenReturn(response);
+
+        mockMvc.perform(patch("/api/users/1")
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                        .content("{\"lastName\": null, \"role\": \"SELLER\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""))
+                .andExpect(jsonPath("$.lastName").doesNotExist());
+    }
+
+    @Test
+    void patchUser_ShouldFailPrecondition_WhenIfMatchNamesNoVersionOfThisUser() throws Exception {
+        mockMvc.perform(patch("/api/users/1")
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "\"2-3\", W/\"1-3\"")
+                        .content("{\"firstName\": \"Jane\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.detail").value("If-Match does not name a version of user 1"));
+        verify(userService, never()).patchUser(any(), any(), any());
+    }
+
+    @Test
+    void patchUser_ShouldReturnUnsupportedMediaType_WithoutMergePatchContentType() throws Exception {
+        mockMvc.perform(patch("/api/users/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Jane\"}"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON));
+    }
+
+    @Test
+    void requests_ShouldReturnBadRequest_WhenParametersAreMissingOrInvalid() throws Exception {
+        mockMvc.perform(get("/api/users/search"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/users").param("role", "OWNER"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/users/abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON));
+    }
+
+    @Test
+    void getUserById_ShouldNotExposeTheMessage_OfAnUnexpectedException() throws Exception {
+        when(userService.getUserById(1L)).thenThrow(new IllegalStateException("jdbc:h2:mem:userdb is closed"));
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.detail").value("Internal server error"));
+    }
 }
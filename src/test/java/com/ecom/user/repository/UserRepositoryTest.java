@@ -1,13 +1,19 @@
 package com.ecom.user.repository;
 
+import com.ecom.user.dto.UserResponse;
 import com.ecom.user.model.Role;
 import com.ecom.user.model.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.TestPropertySource;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,6 +28,9 @@ class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User testUser;
 
     @BeforeEach
@@ -37,8 +46,8 @@ class UserRepositoryTest {
     }
 
     @Test
-    void findByEmail_ShouldReturnUser_WhenEmailExists() {
-        Optional<User> found = userRepository.findByEmail("repo-test@example.com");
+    void findByNormalizedEmail_ShouldReturnUser_WhenEmailExists() {
+        Optional<User> found = userRepository.findByNormalizedEmail("repo-test@example.com");
 
         assertTrue(found.isPresent());
         assertEquals("repo-test@example.com", found.get().getEmail());
@@ -46,26 +55,38 @@ class UserRepositoryTest {
     }
 
     @Test
-    void findByEmail_ShouldReturnEmpty_WhenEmailDoesNotExist() {
-        Optional<User> found = userRepository.findByEmail("nonexistent@example.com");
+    void findByNormalizedEmail_ShouldReturnEmpty_WhenEmailDoesNotExist() {
+        Optional<User> found = userRepository.findByNormalizedEmail("nonexistent@example.com");
 
         assertFalse(found.isPresent());
     }
 
     @Test
-    void existsByEmail_ShouldReturnTrue_WhenEmailExists() {
-        boolean exists = userRepository.existsByEmail("repo-test@example.com");
+    void existsByNormalizedEmail_ShouldReturnTrue_WhenEmailExists() {
+        boolean exists = userRepository.existsByNormalizedEmail("repo-test@example.com");
 
         assertTrue(exists);
     }
 
     @Test
-    void existsByEmail_ShouldReturnFalse_WhenEmailDoesNotExist() {
-        boolean exists = userRepository.existsByEmail("nonexistent@example.com");
+    void existsByNormalizedEmail_ShouldReturnFalse_WhenEmailDoesNotExist() {
+        boolean exists = userRepository.existsByNormalizedEmail("nonexistent@example.com");
 
         assertFalse(exists);
     }
 
+    @Test
+    void save_ShouldNormalizeEmail_AndRejectAddressDifferingOnlyInCase() {
+        User mixedCase = userRepository.saveAndFlush(new User(null, "Mixed.Case@Example.com", "encodedPassword",
+                "Mixed", "Case", Role.BUYER));
+
+        assertEquals("mixed.case@example.com", mixedCase.getNormalizedEmail());
+        assertEquals(Optional.of(mixedCase.getId()),
+                userRepository.findByNormalizedEmail(User.normalizeEmail("MIXED.CASE@example.com")).map(User::getId));
+        assertThrows(DataIntegrityViolationException.class, () -> userRepository.saveAndFlush(
+                new User(null, "Repo-Test@Example.com", "encodedPassword", "Repo", "Again", Role.BUYER)));
+    }
+
     @Test
     void save_ShouldPersistUser() {
         User newUser = new User();
@@ -81,4 +102,77 @@ class UserRepositoryTest {
         assertEquals("new@example.com", saved.getEmail());
         assertNotNull(saved.getCreatedAt());
     }
+
+    @Test
+    void updatePasswordHash_ShouldOnlyReplaceTheExpectedHash() {
+        assertEquals(0, userRepository.updatePasswordHash(testUser.getId(), "staleHash", "{bcrypt}rehashed"));
+        assertEquals(1, userRepository.updatePasswordHash(testUser.getId(), "encodedPassword", "{bcrypt}rehashed"));
+
+        entityManager.clear();
+        assertEquals("{bcrypt}rehashed", userRepository.findById(testUser.getId()).orElseThrow().getPassword());
+    }
+
+    @Test
+    void findVersion_ShouldFollowTheVersionBumpedByAnUpdate() {
+        assertEquals(Optional.of(new UserVersion(testUser.getId(), 0L)), userRepository.findVersionById(testUser.getId()));
+
+        testUser.setFirstName("Renamed");
+        userRepository.flush();
+        entityManager.clear();
+
+        assertEquals(Optional.of(new UserVersion(testUser.getId(), 1L)),
+                userRepository.findVersionByNormalizedEmail("repo-test@example.com"));
+        assertEquals(Optional.empty(), userRepository.findVersionById(-1L));
+    }
+
+    @Test
+    void findPage_ShouldWalkEveryUserOnceAcrossPages_WhenCreatedAtTies() {
+        for (int i = 0; i < 4; i++) {
+            userRepository.save(new User(null, "page" + i + "@example.com", "encodedPassword", "Page", "User" + i,
+                    i % 2 == 0 ? Role.SELLER : Role.BUYER));
+        }
+        setCreatedAtForAll(LocalDateTime.of(2024, 1, 1, 12, 0));
+
+        List<Long> seen = new ArrayList<>();
+        UserPageCursor cursor = null;
+        List<UserResponse> page;
+        do {
+            page = userRepository.findPage(null, null, null, cursor, 2);
+            page.forEach(user -> seen.add(user.getId()));
+            UserResponse last = page.isEmpty() ? null : page.get(page.size() - 1);
+            cursor = last == null ? null : new UserPageCursor(last.getCreatedAt(), last.getId());
+        } while (page.size() == 2);
+
+        assertEquals(5, seen.size());
+        assertEquals(seen.stream().sorted((a, b) -> Long.compare(b, a)).toList(), seen);
+    }
+
+    @Test
+    void findPage_ShouldApplyRoleAndCreatedAtFilters() {
+        User seller = userRepository.save(new User(null, "seller@example.com", "encodedPassword", "Sam", "Seller",
+                Role.SELLER));
+        setCreatedAtForAll(LocalDateTime.of(2024, 1, 1, 0, 0));
+        entityManager.getEntityManager()
+                .createQuery("update User u set u.createdAt = :createdAt where u.id = :id")
+                .setParameter("createdAt", LocalDateTime.of(2024, 6, 1, 0, 0))
+                .setParameter("id", seller.getId())
+                .executeUpdate();
+
+        List<UserResponse> sellers = userRepository.findPage(Role.SELLER, null, null, null, 10);
+        List<UserResponse> june = userRepository.findPage(null, LocalDateTime.of(2024, 6, 1, 0, 0),
+                LocalDateTime.of(2024, 7, 1, 0, 0), null, 10);
+        List<UserResponse> beforeJune = userRepository.findPage(null, null, LocalDateTime.of(2024, 6, 1, 0, 0), null, 10);
+
+        assertEquals(List.of(seller.getId()), sellers.stream().map(UserResponse::getId).toList());
+        assertEquals(List.of(seller.getId()), june.stream().map(UserResponse::getId).toList());
+        assertEquals(List.of(testUser.getId()), beforeJune.stream().map(UserResponse::getId).toList());
+    }
+
+    private void setCreatedAtForAll(LocalDateTime createdAt) {
+        entityManager.getEntityManager()
+                .createQuery("update User u set u.createdAt = :createdAt")
+                .setParameter("createdAt", createdAt)
+                .executeUpdate();
+        entityManager.clear();
+    }
 }
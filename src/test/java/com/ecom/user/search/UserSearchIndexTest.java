@@ -0,0 +1,126 @@
+package com.ecom.user.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSearchIndexTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final UserSearchIndex index = new UserSearchIndex(jdbcTemplate, new SimpleMeterRegistry());
+
+    /** Run once by the {@code during_load} SQL function. */
+    private static volatile Runnable duringLoad;
+
+    /** Public so that H2 can call it. */
+    public static final class LoadHook {
+
+        public static String run(String value) {
+            Runnable action = duringLoad;
+            duringLoad = null;
+            if (action != null) {
+                action.run();
+            }
+            return value;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        duringLoad = null;
+        database.shutdown();
+    }
+
+    @Test
+    void load_ShouldIndexTheTableAndMergeUsersAddedMeanwhile() {
+        jdbcTemplate.execute("create table users (id bigint, email varchar(255), first_name varchar(255), "
+                + "last_name varchar(255))");
+        jdbcTemplate.update("insert into users values (1, 'alice.johnson@example.com', 'Alice', 'Johnson'), "
+                + "(2, 'bob.smith@example.com', 'Bob', 'Smith'), (3, 'al@example.com', 'Alan', 'Turing')");
+        index.add(4, "alina@example.com", "Alina", "Jones");
+
+        index.load();
+
+        assertTrue(index.isReady());
+        assertEquals(List.of(3L, 1L, 4L), index.search("al", 10));
+        assertEquals(List.of(2L), index.search("smi", 10));
+        assertEquals(List.of(1L, 4L), index.search("al jo", 10));
+        assertEquals(List.of(1L), index.search("ALICE.JOHNSON@EX", 10));
+        assertEquals(List.of(1L, 4L), index.search("jo al", 10));
+        assertEquals(List.of(3L, 1L), index.search("al", 2));
+        assertEquals(List.of(), index.search("example", 10));
+        assertEquals(List.of(), index.search("   ", 10));
+    }
+
+    @Test
+    void load_ShouldNotRestoreOldTerms_OfUsersUpdatedWhileTheTableIsRead() {
+        jdbcTemplate.execute("create table user_rows (id bigint, email varchar(255), first_name varchar(255), "
+                + "last_name varchar(255))");
+        jdbcTemplate.update("insert into user_rows values (1, 'alice.johnson@example.com', 'Alice', 'Johnson'), "
+                + "(2, 'mary.johnson@example.com', 'Mary', 'Johnson')");
+        // Reading a row runs the update, as if it committed after the snapshot saw the old fields
+        duringLoad = () -> index.update(1, "alice.johnson@example.com", "Alice", "Johnson",
+                "alice.brown@example.com", "Alice", "Brown");
+        jdbcTemplate.execute("create alias during_load for \"" + LoadHook.class.getName() + ".run\"");
+        jdbcTemplate.execute("create view users as select id, email, first_name, during_load(last_name) as last_name "
+                + "from user_rows");
+
+        index.load();
+
+        assertEquals(List.of(2L), index.search("johnson", 10));
+        assertEquals(List.of(1L), index.search("brown", 10));
+        assertEquals(List.of(), index.search("alice.johnson", 10));
+        index.update(1, "alice.brown@example.com", "Alice", "Brown", "alice.green@example.com", "Alice", "Green");
+        assertEquals(List.of(), index.search("brown", 10));
+    }
+
+    @Test
+    void search_ShouldCheckBroadFilterWordsAgainstEachCandidatesTerms() {
+        // 5000 postings under "s", too many to flatten
+        for (long id = 1; id <= 5000; id++) {
+            index.add(id, "user" + id + "@example.com", "Sam", "Stone");
+        }
+        index.add(9001, "alice.sherwood@example.com", "Alice", "Sherwood");
+        index.add(9002, "alice.jones@example.com", "Alice", "Jones");
+        index.update(9002, "alice.jones@example.com", "Alice", "Jones", "alice.jones@example.com", "Alice", "Smith");
+
+        assertEquals(List.of(9001L, 9002L), index.search("alice s", 10));
+        assertEquals(List.of(9001L), index.search("alice sh", 10));
+        assertEquals(List.of(9002L), index.search("alice sm", 10));
+        assertEquals(List.of(9002L), index.search("alice.j s", 10));
+        assertEquals(List.of(), index.search("bob s", 10));
+    }
+
+    @Test
+    void update_ShouldMoveUserToTheTermsOfItsNewFields() {
+        index.add(1, "alice.johnson@example.com", "Alice", "Johnson");
+        index.add(2, "mary.johnson@example.com", "Mary", "Johnson");
+
+        index.update(1, "alice.johnson@example.com", "Alice", "Johnson", "alice.brown@example.com", "Alice", "Brown");
+
+        assertEquals(List.of(2L), index.search("johnson", 10));
+        assertEquals(List.of(1L), index.search("brown", 10));
+        assertEquals(List.of(1L), index.search("alice", 10));
+        assertEquals(List.of(), index.search("alice.johnson", 10));
+    }
+
+    @Test
+    void terms_ShouldSplitLocalPartAndNamesButNotTheDomain() {
+        assertEquals(Set.of("o'neil.smith+support@mail.example.org", "o", "neil", "smith", "support",
+                        "mary", "ann", "o'neil"),
+                UserSearchIndex.terms("O'Neil.Smith+support@mail.example.org", "Mary Ann", "O'Neil"));
+    }
+}
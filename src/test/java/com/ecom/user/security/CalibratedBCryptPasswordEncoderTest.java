@@ -0,0 +1,42 @@
+package com.ecom.user.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibratedBCryptPasswordEncoderTest {
+
+    @Test
+    void upgradeEncoding_ShouldFlagHashesOfAnyOtherStrength() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+
+    @Test
+    void calibrate_ShouldStayWithinStrengthBounds() {
+        assertEquals(4, CalibratedBCryptPasswordEncoder.calibrate(Duration.ZERO, 4, 6, 1).getStrength());
+        assertEquals(6, CalibratedBCryptPasswordEncoder.calibrate(Duration.ofHours(1), 4, 6, 1).getStrength());
+    }
+
+    @Test
+    void upgradeEncoding_ShouldNotBounceHashesBetweenInstancesCalibratedOneStepApart() {
+        // Both allow up to 6; one host times out at 5, the other reaches 6
+        CalibratedBCryptPasswordEncoder slowHost = CalibratedBCryptPasswordEncoder.calibrate(Duration.ZERO, 5, 6, 1);
+        CalibratedBCryptPasswordEncoder fastHost = CalibratedBCryptPasswordEncoder.calibrate(Duration.ofHours(1), 4, 6, 1);
+        String fromSlowHost = slowHost.encode("secret");
+        String fromFastHost = fastHost.encode("secret");
+
+        assertFalse(fastHost.upgradeEncoding(fromSlowHost));
+        assertFalse(slowHost.upgradeEncoding(fromFastHost));
+        assertTrue(fastHost.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertTrue(slowHost.upgradeEncoding(new BCryptPasswordEncoder(7).encode("secret")));
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecom.user.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRateLimitStoreTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final AtomicLong now = new AtomicLong();
+    private final InMemoryRateLimitStore store = new InMemoryRateLimitStore(new SimpleMeterRegistry(), 1000, now::get);
+
+    @Test
+    void tryAcquire_ShouldRejectOverLimitUntilPreviousWindowDecays() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Duration.ZERO, store.tryAcquire("email:a", 3, WINDOW));
+        }
+
+        // The next window starts with all 3 attempts weighted in; a third of it must pass first
+        Duration retryAfter = store.tryAcquire("email:a", 3, WINDOW);
+        assertEquals(Duration.ofSeconds(80), retryAfter);
+        assertEquals(Duration.ZERO, store.tryAcquire("email:b", 3, WINDOW));
+
+        now.addAndGet(retryAfter.toNanos() - 1);
+        assertFalse(store.tryAcquire("email:a", 3, WINDOW).isZero());
+        now.incrementAndGet();
+        assertEquals(Duration.ZERO, store.tryAcquire("email:a", 3, WINDOW));
+    }
+
+    @Test
+    void tryAcquire_ShouldEvictKeysIdleForTwoWindows() {
+        store.tryAcquire("ip:10.0.0.1", 3, WINDOW);
+        assertEquals(1, store.size());
+
+        now.addAndGet(WINDOW.multipliedBy(2).toNanos() + 1);
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void tryAcquire_ShouldAdmitExactlyTheLimit_WhenContended() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong allowed = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (store.tryAcquire("ip:10.0.0.1", 100, WINDOW).isZero()) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(100, allowed.get());
+    }
+}
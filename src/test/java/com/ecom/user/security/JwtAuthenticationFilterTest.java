@@ -0,0 +1,134 @@
+package com.ecom.user.security;
+
+import com.ecom.user.model.Role;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final TokenUser USER = new TokenUser(1L, "test@example.com", Role.SELLER, 3L, "John", "Doe");
+
+    private JwtService jwtService;
+    private VerifiedTokenCache tokenCache;
+    private TokenRevocationIndex revocationIndex;
+    private SimpleMeterRegistry meterRegistry;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = spy(new JwtService());
+        ReflectionTestUtils.setField(jwtService, "secretKey",
+                "ecom-research-jwt-secret-key-that-is-long-enough-for-hmac-sha256");
+        ReflectionTestUtils.setField(jwtService, "keyId", "primary");
+        ReflectionTestUtils.setField(jwtService, "expiration", 60000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 3600000L);
+        jwtService.init();
+        meterRegistry = new SimpleMeterRegistry();
+        tokenCache = new VerifiedTokenCache(meterRegistry, 100);
+        revocationIndex = new TokenRevocationIndex(meterRegistry);
+        filter = new JwtAuthenticationFilter(jwtService, tokenCache, revocationIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldAuthenticate_WhenBearerTokenValid() throws Exception {
+        String token = jwtService.generateToken(USER);
+
+        Authentication authentication = filterWithToken(token);
+
+        assertNotNull(authentication);
+        assertEquals("test@example.com", authentication.getName());
+        assertEquals(USER, authentication.getPrincipal());
+        assertEquals(List.of("ROLE_SELLER"), authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+
+    @Test
+    void doFilter_ShouldVerifyTokenOnce_WhenTokenSeenAgain() throws Exception {
+        String token = jwtService.generateToken(USER);
+
+        filterWithToken(token);
+        filterWithToken(token);
+
+        verify(jwtService, times(1)).parseSignedClaims(token);
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "jwt.verified-tokens").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void doFilter_ShouldRejectCachedToken_OnceRevoked() throws Exception {
+        String token = jwtService.generateToken(USER);
+        assertNotNull(filterWithToken(token));
+
+        Claims claims = jwtService.parseClaims(token);
+        revocationIndex.revoke(claims.getId(), claims.getExpiration());
+
+        assertNull(filterWithToken(token));
+    }
+
+    @Test
+    void doFilter_ShouldRejectCachedToken_OnceItsKeyIsRetired() throws Exception {
+        String token = jwtService.generateToken(USER);
+        assertNotNull(filterWithToken(token));
+
+        jwtService.rotateKey("next", "another-jwt-secret-key-that-is-long-enough-for-hmac-sha256");
+        assertNotNull(filterWithToken(token));
+        jwtService.retireKey("primary");
+
+        assertNull(filterWithToken(token));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void doFilter_ShouldLeaveRequestUnauthenticated_WhenRefreshTokenUsedAsBearer() throws Exception {
+        assertNull(filterWithToken(jwtService.generateRefreshToken(USER)));
+    }
+
+    @Test
+    void doFilter_ShouldLeaveRequestUnauthenticated_WhenTokenInvalid() throws Exception {
+        assertNull(filterWithToken("not-a-jwt"));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void doFilter_ShouldLeaveRequestUnauthenticated_WhenNoAuthorizationHeader() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private Authentication filterWithToken(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
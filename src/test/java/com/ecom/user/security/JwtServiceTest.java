@@ -0,0 +1,169 @@
+package com.ecom.user.security;
+
+import com.ecom.user.model.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "ecom-research-jwt-secret-key-that-is-long-enough-for-hmac-sha256";
+    private static final String ROTATED_SECRET = "rotated-jwt-secret-key-that-is-also-long-enough-for-hmac-sha256";
+    private static final TokenUser USER = new TokenUser(1L, "test@example.com", Role.BUYER, 0L, "John", "Doe");
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "keyId", "primary");
+        ReflectionTestUtils.setField(jwtService, "expiration", 60000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 3600000L);
+        jwtService.init();
+    }
+
+    @Test
+    void generateToken_ShouldProduceValidToken() {
+        String token = jwtService.generateToken(USER);
+
+        assertTrue(jwtService.isTokenValid(token));
+        assertEquals("test@example.com", jwtService.extractEmail(token));
+    }
+
+    @Test
+    void generateToken_ShouldCarryUserClaims() {
+        TokenUser user = new TokenUser(4_000_000_000L, "seller@example.com", Role.SELLER, 7L, "Sam", "Seller");
+
+        Claims claims = jwtService.parseClaims(jwtService.generateToken(user));
+
+        assertEquals(user, TokenUser.from(claims));
+        assertEquals("SELLER", claims.get(JwtService.ROLE_CLAIM, String.class));
+        assertEquals("Sam", claims.get(JwtService.GIVEN_NAME_CLAIM, String.class));
+    }
+
+    @Test
+    void tokenUser_ShouldHaveNoProfile_WhenTokenOnlyCarriesEmail() {
+        String legacy = Jwts.builder()
+                .header().keyId("primary").and()
+                .subject("test@example.com")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        TokenUser user = TokenUser.from(jwtService.parseClaims(legacy));
+
+        assertEquals("test@example.com", user.getName());
+        assertFalse(user.hasProfile());
+    }
+
+    @Test
+    void generateRefreshToken_ShouldOutliveAccessTokenAndCarryRole() {
+        Claims access = jwtService.parseClaims(jwtService.generateToken(USER));
+        Claims refresh = jwtService.parseRefreshToken(jwtService.generateRefreshToken(
+                new TokenUser(1L, "test@example.com", Role.ADMIN, 0L, "John", "Doe")));
+
+        assertTrue(JwtService.isAccessToken(access));
+        assertFalse(JwtService.isAccessToken(refresh));
+        assertNotEquals(access.getId(), refresh.getId());
+        assertEquals("ADMIN", refresh.get(JwtService.ROLE_CLAIM, String.class));
+        assertTrue(refresh.getExpiration().after(access.getExpiration()));
+    }
+
+    @Test
+    void parseRefreshToken_ShouldRejectAccessToken() {
+        String token = jwtService.generateToken(USER);
+
+        assertThrows(JwtException.class, () -> jwtService.parseRefreshToken(token));
+    }
+
+    @Test
+    void isTokenValid_ShouldReturnFalse_WhenTokenTampered() {
+        String token = jwtService.generateToken(USER);
+
+        assertFalse(jwtService.isTokenValid(token.substring(0, token.length() - 2) + "xx"));
+    }
+
+    @Test
+    void rotateKey_ShouldKeepVerifyingTokensSignedWithPreviousKey() {
+        String oldToken = jwtService.generateToken(USER);
+
+        jwtService.rotateKey("secondary", ROTATED_SECRET);
+        String newToken = jwtService.generateToken(USER);
+
+        assertTrue(jwtService.isTokenValid(oldToken));
+        assertTrue(jwtService.isTokenValid(newToken));
+        assertEquals(2, jwtService.getActiveKeyIds().size());
+    }
+
+    @Test
+    void retireKey_ShouldRejectTokensSignedWithRetiredKey() {
+        String oldToken = jwtService.generateToken(USER);
+
+        jwtService.rotateKey("secondary", ROTATED_SECRET);
+        jwtService.retireKey("primary");
+
+        assertFalse(jwtService.isTokenValid(oldToken));
+        assertTrue(jwtService.isTokenValid(jwtService.generateToken(USER)));
+    }
+
+    @Test
+    void retireKey_ShouldRefuseToRetireActiveKey() {
+        assertThrows(IllegalArgumentException.class, () -> jwtService.retireKey("primary"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ES256", "EdDSA"})
+    void asymmetricSigning_ShouldProduceTokensVerifiableWithPublishedKey(String algorithm) {
+        JwtService asymmetric = asymmetricJwtService(algorithm);
+        String token = asymmetric.generateToken(USER);
+
+        String jwk = asymmetric.getJwkSet().json();
+        PublicKey publicKey = (PublicKey) Jwks.setParser().build().parse(jwk).getKeys().iterator().next().toKey();
+        Claims claims = Jwts.parser().verifyWith(publicKey).build()
+                .parseSignedClaims(token).getPayload();
+
+        assertEquals("test@example.com", claims.getSubject());
+        assertTrue(jwk.contains("\"kid\":\"primary\""));
+        assertFalse(jwk.contains("\"d\""));
+    }
+
+    @Test
+    void getJwkSet_ShouldNotPublishHmacSecrets() {
+        assertEquals("{\"keys\":[]}", jwtService.getJwkSet().json());
+    }
+
+    @Test
+    void rotateKey_ShouldPublishNewPublicKeyUnderNewEtag() {
+        JwtService asymmetric = asymmetricJwtService("ES256");
+        String etag = asymmetric.getJwkSet().etag();
+
+        asymmetric.rotateKey("secondary", Jwts.SIG.ES256.keyPair().build());
+
+        assertNotEquals(etag, asymmetric.getJwkSet().etag());
+        assertTrue(asymmetric.getJwkSet().json().contains("\"kid\":\"secondary\""));
+        assertTrue(asymmetric.isTokenValid(asymmetric.generateToken(USER)));
+    }
+
+    private static JwtService asymmetricJwtService(String algorithm) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "signatureAlgorithm", algorithm);
+        ReflectionTestUtils.setField(service, "keyId", "primary");
+        ReflectionTestUtils.setField(service, "expiration", 60000L);
+        service.init();
+        return service;
+    }
+}
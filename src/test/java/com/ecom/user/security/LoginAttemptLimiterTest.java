@@ -0,0 +1,26 @@
+package com.ecom.user.security;
+
+import com.ecom.user.exception.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAttemptLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoginAttemptLimiter limiter = new LoginAttemptLimiter(
+            new InMemoryRateLimitStore(meterRegistry, 1000), meterRegistry,
+            2, Duration.ofMinutes(5), 100, Duration.ofMinutes(1));
+
+    @Test
+    void acquire_ShouldCountSpellingsOfOneEmailAgainstTheSameWindow() {
+        limiter.acquire("alice@example.com", "10.0.0.1");
+        limiter.acquire(" Alice@Example.com", "10.0.0.2");
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> limiter.acquire("ALICE@EXAMPLE.COM ", "10.0.0.3"));
+        assertDoesNotThrow(() -> limiter.acquire("bob@example.com", "10.0.0.3"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecom.user.security;
+
+import com.ecom.user.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (passwordHasher != null) {
+            passwordHasher.shutdown();
+        }
+    }
+
+    @Test
+    void encode_ShouldDelegateToEncoderAndRecordTimings() {
+        passwordHasher = new PasswordHasher(new PrefixPasswordEncoder(), meterRegistry, 1, 1, Duration.ofSeconds(1));
+
+        assertEquals("hashed:secret", passwordHasher.encode("secret"));
+        assertTrue(passwordHasher.matches("secret", "hashed:secret"));
+        assertEquals(1, meterRegistry.get("password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hash.wait").timer().count());
+    }
+
+    @Test
+    void matchesDummy_ShouldHashOnceAndTrackTypicalMatchesTime() {
+        passwordHasher = new PasswordHasher(new PrefixPasswordEncoder(), meterRegistry, 1, 1, Duration.ofSeconds(1));
+        assertEquals(Duration.ZERO, passwordHasher.getTypicalMatchesTime());
+
+        passwordHasher.matchesDummy("guess");
+        passwordHasher.matchesDummy("another guess");
+
+        assertTrue(passwordHasher.getTypicalMatchesTime().compareTo(Duration.ZERO) > 0);
+        assertEquals(1, meterRegistry.get("password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encodeAsync_ShouldTagTimingsWithTheHashAlgorithm() throws Exception {
+        passwordHasher = new PasswordHasher(new PrefixPasswordEncoder(), meterRegistry, 1, 1, Duration.ofSeconds(1));
+
+        assertEquals("hashed:secret", passwordHasher.encodeAsync("secret").get(5, TimeUnit.SECONDS));
+        assertFalse(passwordHasher.matches("secret", "{argon2}hashed"));
+
+        assertEquals(1, meterRegistry.get("password.hash")
+                .tags("operation", "encode", "algorithm", "bcrypt").timer().count());
+        assertEquals(1, meterRegistry.get("password.hash")
+                .tags("operation", "matches", "algorithm", "argon2").timer().count());
+    }
+
+    @Test
+    void encode_ShouldRejectImmediately_WhenQueueIsFull() throws Exception {
+        passwordHasher = new PasswordHasher(new BlockingPasswordEncoder(), meterRegistry, 1, 1, Duration.ofSeconds(2));
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHasher.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordHasher.encode("second"));
+        while (passwordHasher.getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        PasswordHashingUnavailableException ex = assertThrows(PasswordHashingUnavailableException.class,
+                () -> passwordHasher.encode("third"));
+        assertEquals(Duration.ofSeconds(2), ex.getRetryAfter());
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> passwordHasher.encodeAsync("fourth").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PasswordHashingUnavailableException.class, async.getCause());
+        assertEquals(2.0, meterRegistry.get("password.hash.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("hashed:first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed:second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static class PrefixPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+
+    private class BlockingPasswordEncoder extends PrefixPasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.encode(rawPassword);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecom.user.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileVersionIndexTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final ProfileVersionIndex index = new ProfileVersionIndex(jdbcTemplate, meterRegistry, 3_600_000, 100);
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void isStale_ShouldOnlyFlagClaimsOlderThanTheLatestRecordedChange() {
+        assertFalse(index.isStale(1L, 0L));
+
+        index.recordChange(1L, 2L);
+        index.recordChange(1L, 1L);
+
+        assertTrue(index.isStale(1L, 1L));
+        assertFalse(index.isStale(1L, 2L));
+        assertFalse(index.isStale(2L, 0L));
+        assertEquals(1.0, meterRegistry.get("jwt.profile-version.checks").tag("result", "stale").counter().count());
+        assertEquals(3.0, meterRegistry.get("jwt.profile-version.checks").tag("result", "current").counter().count());
+    }
+
+    @Test
+    void sync_ShouldLearnVersionsOfUsersUpdatedOnOtherInstances() {
+        jdbcTemplate.execute("create table users (id bigint, version bigint)");
+        jdbcTemplate.execute("create table user_change_events (id bigint auto_increment, published_offset bigint, "
+                + "user_id bigint, type varchar(16), occurred_at timestamp)");
+        jdbcTemplate.update("insert into users values (1, 3), (2, 0), (3, 5)");
+        jdbcTemplate.update("insert into user_change_events (published_offset, user_id, type, occurred_at) values "
+                + "(1, 2, 'CREATED', current_timestamp), (2, 1, 'UPDATED', current_timestamp), "
+                + "(3, 3, 'UPDATED', dateadd('HOUR', -2, current_timestamp))");
+
+        index.sync();
+
+        assertTrue(index.isStale(1L, 2L));
+        assertFalse(index.isStale(1L, 3L));
+        assertFalse(index.isStale(2L, 0L));
+        // Older than the refresh-token lifetime: every token issued before it has expired
+        assertFalse(index.isStale(3L, 4L));
+
+        jdbcTemplate.update("update users set version = 4 where id = 1");
+        jdbcTemplate.update("insert into user_change_events (published_offset, user_id, type, occurred_at) "
+                + "values (4, 1, 'UPDATED', current_timestamp)");
+        index.sync();
+
+        assertTrue(index.isStale(1L, 3L));
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecom.user.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegisteredEmailFilterTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void mightContain_ShouldAnswerMaybe_UntilLoaded() {
+        createTables();
+        jdbcTemplate.update("insert into users (email) values ('alice@example.com')");
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(jdbcTemplate, meterRegistry, 1000, 0.01, Duration.ofMinutes(1));
+
+        assertTrue(filter.mightContain("nobody@example.com"));
+
+        filter.load();
+
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightContain("alice@example.com"));
+        assertFalse(filter.mightContain("nobody@example.com"));
+        filter.add("nobody@example.com");
+        assertTrue(filter.mightContain("nobody@example.com"));
+        assertEquals(1.0, meterRegistry.get("login.email-filter.probes").tag("result", "absent").counter().count());
+    }
+
+    @Test
+    void mightContain_ShouldNeverMissAnAddedEmail_AndRarelyMatchOthers() {
+        createTables();
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(jdbcTemplate, meterRegistry, 10_000, 0.01, Duration.ofMinutes(1));
+        filter.load();
+        List<String> registered = IntStream.range(0, 10_000).mapToObj(i -> "user" + i + "@example.com").toList();
+        registered.parallelStream().forEach(filter::add);
+
+        assertTrue(registered.stream().allMatch(filter::mightContain));
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightContain("other" + i + "@example.com"))
+                .count();
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void sync_ShouldAddEmailsWrittenThroughTheOutbox_IncludingUnpublishedOnes() {
+        createTables();
+        jdbcTemplate.update("insert into user_change_events (published_offset, email) values (1, 'old@example.com')");
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(jdbcTemplate, meterRegistry, 1000, 0.01,
+                Duration.ofMinutes(1));
+        filter.load();
+        jdbcTemplate.update("insert into user_change_events (published_offset, email) values "
+                + "(2, 'Other-Instance@example.com'), (null, 'imported@example.com')");
+        assertFalse(filter.mightContain("other-instance@example.com"));
+
+        filter.sync();
+
+        assertTrue(filter.mightContain("other-instance@example.com"));
+        assertTrue(filter.mightContain("imported@example.com"));
+        assertFalse(filter.mightContain("nobody@example.com"));
+    }
+
+    @Test
+    void sync_ShouldPageThroughUnpublishedEvents_BeyondOneBatch() {
+        createTables();
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(jdbcTemplate, meterRegistry, 10_000, 0.001,
+                Duration.ofMinutes(1));
+        filter.load();
+        int count = RegisteredEmailFilter.SYNC_BATCH_SIZE + 500;
+        List<Object[]> rows = IntStream.range(0, count).mapToObj(i -> new Object[]{"imported" + i + "@example.com"})
+                .toList();
+        jdbcTemplate.batchUpdate("insert into user_change_events (published_offset, email) values (null, ?)", rows);
+
+        filter.sync();
+
+        assertTrue(filter.isReady());
+        for (int i = 0; i < count; i++) {
+            assertTrue(filter.mightContain("imported" + i + "@example.com"), "imported" + i);
+        }
+    }
+
+    @Test
+    void mightContain_ShouldAnswerMaybe_WhenNotSyncedWithinMaxStaleness() throws Exception {
+        createTables();
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(jdbcTemplate, meterRegistry, 1000, 0.01,
+                Duration.ofMillis(1));
+        filter.load();
+        Thread.sleep(5);
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain("nobody@example.com"));
+        assertEquals(1.0, meterRegistry.get("login.email-filter.probes").tag("result", "stale").counter().count());
+    }
+
+    @Test
+    void load_ShouldLeaveFilterOpen_WhenQueryFails() {
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(jdbcTemplate, meterRegistry, 1000, 0.01, Duration.ofMinutes(1));
+
+        filter.load();
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain("anyone@example.com"));
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute("create table users (email varchar(255))");
+        jdbcTemplate.execute("create table user_change_events (id bigint auto_increment primary key, "
+                + "published_offset bigint, email varchar(255))");
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecom.user.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationIndexTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenRevocationIndex index = new TokenRevocationIndex(meterRegistry, now::get);
+
+    @Test
+    void revoke_ShouldSucceedOncePerToken() {
+        Date expiration = new Date(now.get() + 900_000);
+
+        assertTrue(index.revoke("jti-1", expiration));
+        assertFalse(index.revoke("jti-1", expiration));
+
+        assertTrue(index.isRevoked("jti-1", expiration));
+        assertFalse(index.isRevoked("jti-2", expiration));
+        assertEquals(1.0, meterRegistry.get("jwt.revoked-tokens").gauge().value());
+    }
+
+    @Test
+    void isRevoked_ShouldDropEntriesOnceTheirBucketHasExpired() {
+        Date soon = new Date(now.get() + 60_000);
+        Date later = new Date(now.get() + 3_600_000);
+        index.revoke("short-lived", soon);
+        index.revoke("long-lived", later);
+
+        now.addAndGet(180_000);
+
+        assertFalse(index.isRevoked("short-lived", soon));
+        assertTrue(index.isRevoked("long-lived", later));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void revoke_ShouldIgnoreTokensThatAlreadyExpired() {
+        assertFalse(index.revoke("expired", new Date(now.get() - 120_000)));
+        assertEquals(0, index.size());
+    }
+}
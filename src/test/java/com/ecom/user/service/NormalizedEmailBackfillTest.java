@@ -0,0 +1,74 @@
+package com.ecom.user.service;
+
+import com.ecom.user.model.Role;
+import com.ecom.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.sql.init.mode=never",
+        "eureka.client.enabled=false"
+})
+class NormalizedEmailBackfillTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void backfill_ShouldNormalizeLegacyRowsInChunks_AndFailOnCaseClashes() {
+        insertLegacyRows("Ann@Example.com", "bob@example.com", "CAROL@example.com", "ann@example.com", "Dan@example.com");
+        long clashingId = jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE email = 'ann@example.com'", Long.class);
+        NormalizedEmailBackfill backfill = new NormalizedEmailBackfill(jdbcTemplate, transactionManager, 2);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, backfill::backfill);
+
+        assertTrue(failure.getMessage().contains("[" + clashingId + "]"), failure.getMessage());
+        assertEquals(Arrays.asList("ann@example.com", "bob@example.com", "carol@example.com", null, "dan@example.com"),
+                jdbcTemplate.queryForList("SELECT normalized_email FROM users ORDER BY id", String.class));
+        assertEquals("Ann@Example.com", userRepository.findByNormalizedEmail("ann@example.com").orElseThrow().getEmail());
+
+        // Fails again on every start until the accounts are merged
+        assertThrows(IllegalStateException.class, backfill::backfill);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", clashingId);
+        assertEquals(0, backfill.backfill());
+    }
+
+    private void insertLegacyRows(String... emails) {
+        List<Object[]> rows = Arrays.stream(emails)
+                .map(email -> new Object[]{email, "encodedPassword", Role.BUYER.name()})
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, password, role, version) VALUES (?, ?, ?, 0)", rows);
+    }
+}
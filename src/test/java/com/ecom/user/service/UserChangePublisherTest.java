@@ -0,0 +1,140 @@
+package com.ecom.user.service;
+
+import com.ecom.user.dto.UserChangeEventResponse;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import com.ecom.user.model.UserChangeEvent;
+import com.ecom.user.repository.UserChangeEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.sql.init.mode=never",
+        "eureka.client.enabled=false"
+})
+class UserChangePublisherTest {
+
+    @Autowired
+    private UserChangeEventRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserChangePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        // Batch size 2 makes every drain cross several batches
+        publisher = new UserChangePublisher(repository, transactionManager, new SimpleMeterRegistry(), 2,
+                Duration.ofDays(1));
+    }
+
+    @Test
+    void publishPending_ShouldAssignContiguousOffsetsInWriteOrderAndNotifySubscribers() {
+        List<List<UserChangeEventResponse>> delivered = new ArrayList<>();
+        publisher.subscribe(delivered::add);
+        for (long id = 1; id <= 5; id++) {
+            record(UserChangeEvent.Type.CREATED, id);
+        }
+
+        publisher.publishPending();
+
+        assertEquals(List.of(2, 2, 1), delivered.stream().map(List::size).toList());
+        List<UserChangeEventResponse> events = delivered.stream().flatMap(List::stream).toList();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), events.stream().map(UserChangeEventResponse::getOffset).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), events.stream().map(UserChangeEventResponse::getUserId).toList());
+        assertEquals(5, publisher.getLastOffset());
+        assertEquals(List.of(4L, 5L), publisher.readAfter(3, 10).stream().map(UserChangeEventResponse::getUserId).toList());
+    }
+
+    @Test
+    void publishPending_ShouldContinueOffsetsAfterRestartAndForEventsCommittedLater() {
+        record(UserChangeEvent.Type.CREATED, 1L);
+        publisher.publishPending();
+        record(UserChangeEvent.Type.UPDATED, 1L);
+
+        UserChangePublisher restarted = new UserChangePublisher(repository, transactionManager,
+                new SimpleMeterRegistry(), 2, Duration.ofDays(1));
+        restarted.publishPending();
+
+        List<UserChangeEventResponse> events = restarted.readAfter(0, 10);
+        assertEquals(List.of(1L, 2L), events.stream().map(UserChangeEventResponse::getOffset).toList());
+        assertEquals(UserChangeEvent.Type.UPDATED, events.get(1).getType());
+    }
+
+    @Test
+    void eventsAfter_ShouldUseTheBatchOnlyWhenItContinuesFromTheOffset() {
+        for (long id = 1; id <= 3; id++) {
+            record(UserChangeEvent.Type.CREATED, id);
+        }
+        publisher.publishPending();
+        List<UserChangeEventResponse> lastBatch = publisher.readAfter(2, 10);
+
+        assertEquals(List.of(3L), offsets(publisher.eventsAfter(2, lastBatch, 10)));
+        assertEquals(List.of(), offsets(publisher.eventsAfter(3, lastBatch, 10)));
+        // The subscriber is behind the batch, so the gap is read from the table
+        assertEquals(List.of(1L, 2L, 3L), offsets(publisher.eventsAfter(0, lastBatch, 10)));
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteOnlyPublishedEventsOlderThanTheRetention() {
+        UserChangeEvent old = expired(record(UserChangeEvent.Type.CREATED, 1L));
+        UserChangeEvent newest = expired(record(UserChangeEvent.Type.CREATED, 2L));
+        publisher.publishPending();
+        UserChangeEvent pending = expired(record(UserChangeEvent.Type.UPDATED, 1L));
+
+        publisher.purgeExpired();
+
+        List<Long> remaining = repository.findAll().stream().map(UserChangeEvent::getId).toList();
+        assertFalse(remaining.contains(old.getId()));
+        assertEquals(List.of(newest.getId(), pending.getId()), remaining.stream().sorted().toList());
+    }
+
+    @Test
+    void purgeExpired_ShouldKeepTheNewestEvent_SoOffsetsContinueAfterRestart() {
+        for (long id = 1; id <= 3; id++) {
+            expired(record(UserChangeEvent.Type.CREATED, id));
+        }
+        publisher.publishPending();
+
+        publisher.purgeExpired();
+        UserChangePublisher restarted = new UserChangePublisher(repository, transactionManager,
+                new SimpleMeterRegistry(), 2, Duration.ofDays(1));
+        record(UserChangeEvent.Type.UPDATED, 1L);
+        restarted.publishPending();
+
+        assertEquals(4, restarted.getLastOffset());
+        assertEquals(List.of(4L), offsets(restarted.readAfter(3, 10)));
+    }
+
+    private UserChangeEvent expired(UserChangeEvent event) {
+        event.setOccurredAt(LocalDateTime.now().minusDays(2));
+        return repository.save(event);
+    }
+
+    private UserChangeEvent record(UserChangeEvent.Type type, Long userId) {
+        User user = new User(userId, "user" + userId + "@example.com", "encodedPassword", "Test", "User", Role.BUYER);
+        return repository.save(UserChangeEvent.of(type, user, null));
+    }
+
+    private static List<Long> offsets(List<UserChangeEventResponse> events) {
+        return events.stream().map(UserChangeEventResponse::getOffset).toList();
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecom.user.service;
+
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import com.ecom.user.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.sql.init.mode=never",
+        "eureka.client.enabled=false"
+})
+class UserExportServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UserExportService userExportService;
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(userRepository.save(new User(null, "export" + i + "@example.com", "encodedPassword",
+                    "Export", i == 0 ? null : "User" + i, Role.SELLER)));
+        }
+        // Fetch size 2 makes the export cross several fetches and flushes
+        userExportService = new UserExportService(jdbcTemplate, transactionManager, objectMapper, 2);
+    }
+
+    @Test
+    void exportUsers_ShouldWriteOneLinePerUserInIdOrderWithoutPasswords() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = userExportService.exportUsers(0, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, exported);
+        assertEquals(5, lines.length);
+        assertTrue(output.toString(StandardCharsets.UTF_8).endsWith("\n"));
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode user = objectMapper.readTree(lines[i]);
+            assertEquals(users.get(i).getId(), user.get("id").asLong());
+            assertEquals("export" + i + "@example.com", user.get("email").asText());
+            assertEquals("SELLER", user.get("role").asText());
+            assertTrue(user.hasNonNull("createdAt"));
+            assertEquals(0, user.get("version").asLong());
+            assertFalse(user.has("password"));
+        }
+        assertTrue(objectMapper.readTree(lines[0]).get("lastName").isNull());
+    }
+
+    @Test
+    void exportUsers_ShouldResumeAfterLastSeenId() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = userExportService.exportUsers(users.get(2).getId(), output);
+
+        assertEquals(2, exported);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(users.get(3).getId(), objectMapper.readTree(lines[0]).get("id").asLong());
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecom.user.service;
+
+import com.ecom.user.dto.UserImportResult;
+import com.ecom.user.model.Role;
+import com.ecom.user.model.User;
+import com.ecom.user.repository.UserRepository;
+import com.ecom.user.search.UserSearchIndex;
+import com.ecom.user.security.RegisteredEmailFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.sql.init.mode=never",
+        "eureka.client.enabled=false"
+})
+class UserImportServiceTest {
+
+    private static final String BCRYPT_HASH = "$2a$04$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+    private static final String ARGON2_HASH =
+            "{argon2}$argon2id$v=19$m=1024,t=1,p=1$EmIQIWOIcgJlv2NgDjPIHg$uoMtS0wAAKGb/yzaSA5WG+x4kyaZv5Rbcz8BSw1fXyg";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private UserImportService userImportService;
+    private UserSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM user_change_events");
+        RegisteredEmailFilter registeredEmails = new RegisteredEmailFilter(jdbcTemplate, new SimpleMeterRegistry(), 1000, 0.01,
+                Duration.ofMinutes(1));
+        searchIndex = new UserSearchIndex(jdbcTemplate, new SimpleMeterRegistry());
+        userImportService = new UserImportService(jdbcTemplate, transactionManager, passwordEncoder, registeredEmails,
+                searchIndex, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void importUsers_ShouldInsertNdjsonRowsAcrossChunks() throws Exception {
+        String ndjson = """
+                {"email":"a@example.com","password":"password123","firstName":"Ann","role":"SELLER"}
+                {"email":"b@example.com","passwordHash":"%s"}
+                {"email":"c@example.com","password":"password123"}
+                """.formatted(BCRYPT_HASH);
+
+        List<UserImportResult> results = importUsers(ndjson, UserImportService.Format.NDJSON);
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == UserImportResult.Status.CREATED));
+        assertTrue(results.stream().allMatch(r -> r.getId() != null));
+        User ann = userRepository.findByNormalizedEmail("a@example.com").orElseThrow();
+        assertEquals(Role.SELLER, ann.getRole());
+        assertTrue(passwordEncoder.matches("password123", ann.getPassword()));
+        assertEquals(BCRYPT_HASH, userRepository.findByNormalizedEmail("b@example.com").orElseThrow().getPassword());
+        assertEquals(Role.BUYER, userRepository.findByNormalizedEmail("c@example.com").orElseThrow().getRole());
+        assertEquals(List.of(ann.getId()), searchIndex.search("ann", 10));
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"), jdbcTemplate.queryForList(
+                "SELECT email FROM user_change_events WHERE type = 'CREATED' AND published_offset IS NULL ORDER BY id",
+                String.class));
+    }
+
+    @Test
+    void importUsers_ShouldReportDuplicatesAndInvalidRowsPerLine() throws Exception {
+        User existing = new User(null, "taken@example.com", "encodedPassword", "Taken", "User", Role.BUYER);
+        userRepository.save(existing);
+        String csv = """
+                email,password,firstName,lastName,role
+                Taken@Example.com,password123,Dup,One,BUYER
+                new@example.com,password123,New,User,
+                NEW@example.com,password123,New,Again,BUYER
+                not-an-email,password123,Bad,Email,BUYER
+                """;
+
+        List<UserImportResult> results = importUsers(csv, UserImportService.Format.CSV);
+
+        assertEquals(List.of(2L, 3L, 4L, 5L), results.stream().map(UserImportResult::getLine).toList());
+        assertEquals(List.of(UserImportResult.Status.DUPLICATE, UserImportResult.Status.CREATED,
+                        UserImportResult.Status.DUPLICATE, UserImportResult.Status.INVALID),
+                results.stream().map(UserImportResult::getStatus).toList());
+        assertEquals(2, userRepository.count());
+    }
+
+    @Test
+    void importUsers_ShouldRejectRowsWithoutExactlyOneUsablePasswordField() throws Exception {
+        String ndjson = """
+                {"email":"a@example.com"}
+                {"email":"b@example.com","passwordHash":"plain-text"}
+                {"email":"c@example.com","passwordHash":"{noop}chosen-password"}
+                {"email":"d@example.com","passwordHash":"{bcrypt}plain-text"}
+                not json
+                """;
+
+        List<UserImportResult> results = importUsers(ndjson, UserImportService.Format.NDJSON);
+
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == UserImportResult.Status.INVALID));
+        assertEquals(0, userRepository.count());
+    }
+
+    @Test
+    void importUsers_ShouldStoreArgon2AndPrefixedBCryptHashesAsGiven() throws Exception {
+        String ndjson = """
+                {"email":"a@example.com","passwordHash":"%s"}
+                {"email":"b@example.com","passwordHash":"{bcrypt}%s"}
+                """.formatted(ARGON2_HASH, BCRYPT_HASH);
+
+        List<UserImportResult> results = importUsers(ndjson, UserImportService.Format.NDJSON);
+
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == UserImportResult.Status.CREATED));
+        assertEquals(ARGON2_HASH, userRepository.findByNormalizedEmail("a@example.com").orElseThrow().getPassword());
+        assertEquals("{bcrypt}" + BCRYPT_HASH,
+                userRepository.findByNormalizedEmail("b@example.com").orElseThrow().getPassword());
+    }
+
+    private List<UserImportResult> importUsers(String body, UserImportService.Format format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format, output);
+        return Arrays.stream(output.toString(StandardCharsets.UTF_8).split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, UserImportResult.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+}
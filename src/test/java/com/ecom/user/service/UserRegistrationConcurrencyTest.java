@@ -0,0 +1,93 @@
+package com.ecom.user.service;
+
+import com.ecom.user.dto.RegisterRequest;
+import com.ecom.user.exception.UserAlreadyExistsException;
+import com.ecom.user.model.Role;
+import com.ecom.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "eureka.client.enabled=false"
+})
+class UserRegistrationConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        List.of("race@example.com", "first@example.com", "second@example.com")
+                .forEach(email -> userRepository.findByNormalizedEmail(email).ifPresent(userRepository::delete));
+    }
+
+    @Test
+    void updateUser_ShouldReportConflict_WhenEmailBelongsToAnotherUser() {
+        userService.register(new RegisterRequest("first@example.com", "password123", "First", "User", Role.BUYER));
+        Long secondId = userService.register(
+                new RegisterRequest("second@example.com", "password123", "Second", "User", Role.BUYER)).getId();
+
+        RegisterRequest update = new RegisterRequest("first@example.com", null, null, null, null);
+
+        assertThrows(UserAlreadyExistsException.class, () -> userService.updateUser(secondId, update));
+        assertEquals("second@example.com", userService.getUserById(secondId).getEmail());
+    }
+
+    @Test
+    void register_ShouldLetExactlyOneOfParallelDuplicateRegistrationsWin() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                RegisterRequest request = new RegisterRequest("race@example.com", "password123", "Race", "Condition",
+                        Role.BUYER);
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        userService.register(request);
+                        return true;
+                    } catch (UserAlreadyExistsException e) {
+                        conflicts.incrementAndGet();
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int successes = 0;
+            for (Future<Boolean> attempt : attempts) {
+                if (attempt.get(60, TimeUnit.SECONDS)) {
+                    successes++;
+                }
+            }
+
+            assertEquals(1, successes);
+            assertEquals(THREADS - 1, conflicts.get());
+            assertTrue(userRepository.existsByNormalizedEmail("race@example.com"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,43 +1,109 @@
 package com.ecom.user.service;
 
+import com.ecom.user.cache.UserCache;
+import com.ecom.user.dto.CurrentUserResponse;
 import com.ecom.user.dto.LoginRequest;
 import com.ecom.user.dto.LoginResponse;
 import com.ecom.user.dto.RegisterRequest;
+import com.ecom.user.dto.UserBatchResponse;
+import com.ecom.user.dto.UserPageResponse;
+import com.ecom.user.dto.UserPatchRequest;
 import com.ecom.user.dto.UserResponse;
+import com.ecom.user.exception.InvalidCredentialsException;
+import com.ecom.user.exception.InvalidTokenException;
+import com.ecom.user.exception.PasswordHashingUnavailableException;
+import com.ecom.user.exception.PreconditionFailedException;
+import com.ecom.user.exception.TooManyLoginAttemptsException;
 import com.ecom.user.exception.UserAlreadyExistsException;
 import com.ecom.user.exception.UserNotFoundException;
 import com.ecom.user.model.Role;
 import com.ecom.user.model.User;
+import com.ecom.user.model.UserChangeEvent;
+import com.ecom.user.repository.UserChangeEventRepository;
+import com.ecom.user.repository.UserCredentials;
+import com.ecom.user.repository.UserPageCursor;
 import com.ecom.user.repository.UserRepository;
+import com.ecom.user.repository.UserVersion;
+import com.ecom.user.search.UserSearchIndex;
 import com.ecom.user.security.JwtService;
+import com.ecom.user.security.LoginAttemptLimiter;
+import com.ecom.user.security.PasswordHasher;
+import com.ecom.user.security.ProfileVersionIndex;
+import com.ecom.user.security.RegisteredEmailFilter;
+import com.ecom.user.security.TokenRevocationIndex;
+import com.ecom.user.security.TokenUser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
 
+    private static final String CLIENT_IP = "10.0.0.1";
+    private static final TokenUser TOKEN_USER = new TokenUser(1L, "test@example.com", Role.BUYER, 0L, "John", "Doe");
+    private static final TokenUser REFRESH_USER = new TokenUser(1L, "test@example.com", Role.SELLER, 2L, "John", "Doe");
+
     @Mock
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Mock
     private JwtService jwtService;
 
+    @Mock
+    private LoginAttemptLimiter loginAttemptLimiter;
+
+    @Mock
+    private RegisteredEmailFilter registeredEmails;
+
+    @Mock
+    private TokenRevocationIndex revocationIndex;
+
+    @Mock
+    private UserChangeEventRepository changeEvents;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private UserSearchIndex searchIndex;
+
+    @Mock
+    private ProfileVersionIndex profileVersions;
+
+    @Spy
+    private UserCache userCache = new UserCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private UserService userService;
 
@@ -63,8 +129,7 @@ class UserServiceTest {
 
     @Test
     void register_ShouldReturnUserResponse_WhenValidRequest() {
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
-        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(passwordHasher.encode(anyString())).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
         UserResponse response = userService.register(registerRequest);
@@ -75,43 +140,274 @@ class UserServiceTest {
         assertEquals("Doe", response.getLastName());
         assertEquals(Role.BUYER, response.getRole());
         verify(userRepository).save(any(User.class));
+        verify(userRepository, never()).existsByNormalizedEmail(anyString());
+        verify(changeEvents).save(argThat(event ->
+                event.getType() == UserChangeEvent.Type.CREATED && event.getUserId() == 1L));
+        verify(transactionManager).commit(any());
+        verify(searchIndex).add(1L, "test@example.com", "John", "Doe");
     }
 
     @Test
     void register_ShouldThrowException_WhenEmailAlreadyExists() {
-        when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
+        when(passwordHasher.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(emailConstraintViolation());
 
         assertThrows(UserAlreadyExistsException.class, () -> userService.register(registerRequest));
-        verify(userRepository, never()).save(any(User.class));
+        verify(changeEvents, never()).save(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void register_ShouldRethrow_WhenOtherConstraintViolated() {
+        when(passwordHasher.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("NULL not allowed for column \"ROLE\""));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.register(registerRequest));
     }
 
     @Test
     void login_ShouldReturnLoginResponse_WhenValidCredentials() {
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches("password123", "encodedPassword")).thenReturn(true);
-        when(jwtService.generateToken("test@example.com")).thenReturn("jwt-token");
+        givenRegisteredUser();
+        when(passwordHasher.matches("password123", "encodedPassword")).thenReturn(true);
+        when(jwtService.generateToken(TOKEN_USER)).thenReturn("jwt-token");
+        when(jwtService.generateRefreshToken(TOKEN_USER)).thenReturn("refresh-token");
 
-        LoginResponse response = userService.login(loginRequest);
+        LoginResponse response = userService.login(loginRequest, CLIENT_IP);
 
         assertNotNull(response);
         assertEquals("jwt-token", response.getToken());
+        assertEquals("refresh-token", response.getRefreshToken());
         assertEquals("test@example.com", response.getEmail());
         assertEquals(Role.BUYER, response.getRole());
+        verify(userRepository, never()).findByNormalizedEmail(anyString());
+        verify(userRepository, never()).updatePasswordHash(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void login_ShouldRehashPassword_WhenStoredHashIsOutdated() {
+        givenRegisteredUser();
+        when(passwordHasher.matches("password123", "encodedPassword")).thenReturn(true);
+        when(passwordHasher.upgradeEncoding("encodedPassword")).thenReturn(true);
+        when(passwordHasher.encodeAsync("password123")).thenReturn(CompletableFuture.completedFuture("{bcrypt}rehashed"));
+        when(jwtService.generateToken(TOKEN_USER)).thenReturn("jwt-token");
+
+        userService.login(loginRequest, CLIENT_IP);
+
+        verify(userRepository).updatePasswordHash(1L, "encodedPassword", "{bcrypt}rehashed");
+    }
+
+    @Test
+    void login_ShouldSucceed_WhenRehashIsRejected() {
+        givenRegisteredUser();
+        when(passwordHasher.matches("password123", "encodedPassword")).thenReturn(true);
+        when(passwordHasher.upgradeEncoding("encodedPassword")).thenReturn(true);
+        when(passwordHasher.encodeAsync("password123")).thenReturn(CompletableFuture.failedFuture(
+                new PasswordHashingUnavailableException("busy", Duration.ofSeconds(1))));
+        when(jwtService.generateToken(TOKEN_USER)).thenReturn("jwt-token");
+
+        assertEquals("jwt-token", userService.login(loginRequest, CLIENT_IP).getToken());
+        verify(userRepository, never()).updatePasswordHash(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void login_ShouldRejectBeforeHashing_WhenThrottled() {
+        doThrow(new TooManyLoginAttemptsException("Too many login attempts", Duration.ofSeconds(30)))
+                .when(loginAttemptLimiter).acquire("test@example.com", CLIENT_IP);
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> userService.login(loginRequest, CLIENT_IP));
+        verifyNoInteractions(registeredEmails, userRepository, passwordHasher, jwtService);
+    }
+
+    @Test
+    void login_ShouldWaitWithoutQueryingOrHashing_WhenEmailWasNeverRegistered() {
+        when(registeredEmails.mightContain("test@example.com")).thenReturn(false);
+        when(passwordHasher.getTypicalMatchesTime()).thenReturn(Duration.ofMillis(20));
+
+        long start = System.nanoTime();
+        assertThrows(InvalidCredentialsException.class, () -> userService.login(loginRequest, CLIENT_IP));
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(20).toNanos());
+        verifyNoInteractions(userRepository);
+        verify(passwordHasher, never()).matches(anyString(), anyString());
+        verify(passwordHasher, never()).matchesDummy(anyString());
+    }
+
+    @Test
+    void login_ShouldCheckDummyHash_WhenFilterMatchesUnknownEmail() {
+        when(registeredEmails.mightContain("test@example.com")).thenReturn(true);
+        when(userRepository.findCredentialsByNormalizedEmail("test@example.com")).thenReturn(Optional.empty());
+
+        InvalidCredentialsException ex = assertThrows(InvalidCredentialsException.class,
+                () -> userService.login(loginRequest, CLIENT_IP));
+
+        assertEquals("Invalid email or password", ex.getMessage());
+        verify(passwordHasher).matchesDummy("password123");
+    }
+
+    @Test
+    void login_ShouldThrowInvalidCredentials_WhenInvalidPassword() {
+        givenRegisteredUser();
+        when(passwordHasher.matches("password123", "encodedPassword")).thenReturn(false);
+
+        InvalidCredentialsException ex = assertThrows(InvalidCredentialsException.class,
+                () -> userService.login(loginRequest, CLIENT_IP));
+
+        assertEquals("Invalid email or password", ex.getMessage());
+        verify(jwtService, never()).generateToken(any());
+    }
+
+    @Test
+    void refreshToken_ShouldIssueNewPairAndRevokePresentedToken() {
+        Claims claims = refreshClaims("jti-1");
+        when(jwtService.parseRefreshToken("refresh-token")).thenReturn(claims);
+        when(revocationIndex.revoke("jti-1", claims.getExpiration())).thenReturn(true);
+        when(jwtService.generateToken(REFRESH_USER)).thenReturn("new-access");
+        when(jwtService.generateRefreshToken(REFRESH_USER)).thenReturn("new-refresh");
+
+        LoginResponse response = userService.refreshToken("refresh-token");
+
+        assertEquals("new-access", response.getToken());
+        assertEquals("new-refresh", response.getRefreshToken());
+        assertEquals(Role.SELLER, response.getRole());
+        verifyNoInteractions(passwordHasher, userRepository);
+    }
+
+    @Test
+    void refreshToken_ShouldReloadUser_WhenClaimsAreStale() {
+        Claims claims = refreshClaims("jti-1");
+        when(jwtService.parseRefreshToken("refresh-token")).thenReturn(claims);
+        when(revocationIndex.revoke("jti-1", claims.getExpiration())).thenReturn(true);
+        when(profileVersions.isStale(1L, 2L)).thenReturn(true);
+        testUser.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        TokenUser current = new TokenUser(1L, "test@example.com", Role.BUYER, 3L, "John", "Doe");
+        when(jwtService.generateToken(current)).thenReturn("new-access");
+
+        LoginResponse response = userService.refreshToken("refresh-token");
+
+        assertEquals("new-access", response.getToken());
+        assertEquals(Role.BUYER, response.getRole());
+    }
+
+    @Test
+    void refreshToken_ShouldLookUpUserByEmail_WhenTokenPredatesUserClaims() {
+        Claims claims = Jwts.claims()
+                .id("jti-1")
+                .subject("test@example.com")
+                .add(JwtService.ROLE_CLAIM, Role.BUYER.name())
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .build();
+        when(jwtService.parseRefreshToken("refresh-token")).thenReturn(claims);
+        when(revocationIndex.revoke("jti-1", claims.getExpiration())).thenReturn(true);
+        when(userRepository.findByNormalizedEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(jwtService.generateToken(TOKEN_USER)).thenReturn("new-access");
+
+        assertEquals("new-access", userService.refreshToken("refresh-token").getToken());
+        verifyNoInteractions(profileVersions);
+    }
+
+    @Test
+    void getCurrentUser_ShouldAnswerFromClaims_WhenVersionIsCurrent() {
+        CurrentUserResponse response = userService.getCurrentUser(REFRESH_USER);
+
+        assertEquals(1L, response.getId());
+        assertEquals(Role.SELLER, response.getRole());
+        assertEquals(2L, response.getVersion());
+        assertEquals("Doe", response.getLastName());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getCurrentUser_ShouldReadUser_WhenClaimsAreStale() {
+        when(profileVersions.isStale(1L, 2L)).thenReturn(true);
+        testUser.setVersion(3L);
+        testUser.setRole(Role.ADMIN);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        CurrentUserResponse response = userService.getCurrentUser(REFRESH_USER);
+
+        assertEquals(Role.ADMIN, response.getRole());
+        assertEquals(3L, response.getVersion());
+    }
+
+    @Test
+    void refreshToken_ShouldReject_WhenTokenAlreadyUsed() {
+        Claims claims = refreshClaims("jti-1");
+        when(jwtService.parseRefreshToken("refresh-token")).thenReturn(claims);
+        when(revocationIndex.revoke("jti-1", claims.getExpiration())).thenReturn(false);
+
+        assertThrows(InvalidTokenException.class, () -> userService.refreshToken("refresh-token"));
+        verify(jwtService, never()).generateToken(any());
     }
 
     @Test
-    void login_ShouldThrowException_WhenUserNotFound() {
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.empty());
+    void refreshToken_ShouldReject_WhenTokenDoesNotVerify() {
+        when(jwtService.parseRefreshToken("access-token")).thenThrow(new JwtException("Not a refresh token"));
 
-        assertThrows(UserNotFoundException.class, () -> userService.login(loginRequest));
+        assertThrows(InvalidTokenException.class, () -> userService.refreshToken("access-token"));
+        verifyNoInteractions(revocationIndex);
     }
 
     @Test
-    void login_ShouldThrowException_WhenInvalidPassword() {
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches("password123", "encodedPassword")).thenReturn(false);
+    void revokeToken_ShouldIgnoreTokensThatDoNotVerify() {
+        when(jwtService.parseClaims("garbage")).thenThrow(new JwtException("Malformed"));
+
+        userService.revokeToken("garbage");
+
+        verifyNoInteractions(revocationIndex);
+    }
+
+    @Test
+    void listUsers_ShouldReturnCursorOfLastUser_WhenMoreUsersFollow() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(userRepository.findPage(Role.SELLER, null, null, null, 3)).thenReturn(List.of(
+                new UserResponse(9L, "a@example.com", "A", "A", Role.SELLER, createdAt, 0L),
+                new UserResponse(8L, "b@example.com", "B", "B", Role.SELLER, createdAt, 0L),
+                new UserResponse(7L, "c@example.com", "C", "C", Role.SELLER, createdAt, 0L)));
+
+        UserPageResponse page = userService.listUsers(Role.SELLER, null, null, null, 2);
+
+        assertEquals(List.of(9L, 8L), page.getUsers().stream().map(UserResponse::getId).toList());
+        assertEquals(new UserPageCursor(createdAt, 8L), UserPageCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void listUsers_ShouldOmitCursor_OnLastPage() {
+        UserPageCursor after = new UserPageCursor(LocalDateTime.of(2024, 1, 1, 12, 0), 8L);
+        when(userRepository.findPage(null, null, null, after, 3)).thenReturn(List.of(
+                new UserResponse(7L, "c@example.com", "C", "C", Role.SELLER, after.createdAt(), 0L)));
+
+        UserPageResponse page = userService.listUsers(null, null, null, after.encode(), 2);
 
-        assertThrows(IllegalArgumentException.class, () -> userService.login(loginRequest));
+        assertEquals(1, page.getUsers().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void listUsers_ShouldRejectInvalidLimitAndCursor() {
+        assertThrows(IllegalArgumentException.class, () -> userService.listUsers(null, null, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> userService.listUsers(null, null, null, null, 501));
+        assertThrows(IllegalArgumentException.class, () -> userService.listUsers(null, null, null, "not-a-cursor", 10));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void searchUsers_ShouldReturnIndexHitsInRankOrderAndSkipDeletedUsers() {
+        User second = new User(2L, "johnny@example.com", "encodedPassword", "Johnny", "Doe", Role.SELLER);
+        when(searchIndex.search("joh", 10)).thenReturn(List.of(2L, 1L, 3L));
+        when(userRepository.findAllById(anyList())).thenReturn(List.of(testUser, second));
+
+        List<UserResponse> users = userService.searchUsers("joh", 10);
+
+        assertEquals(List.of(2L, 1L), users.stream().map(UserResponse::getId).toList());
+    }
+
+    @Test
+    void searchUsers_ShouldRejectInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("joh", 0));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("joh", 101));
+        verifyNoInteractions(searchIndex);
     }
 
     @Test
@@ -125,16 +421,41 @@ class UserServiceTest {
         assertEquals("test@example.com", response.getEmail());
     }
 
+    @Test
+    void getUserById_ShouldServeFromCache_WhenCalledAgain() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        userService.getUserById(1L);
+        UserResponse response = userService.getUserById(1L);
+
+        assertEquals("test@example.com", response.getEmail());
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getUserByEmail_ShouldReuseEntryCachedById() {
+        when(userRepository.findByNormalizedEmail("test@example.com")).thenReturn(Optional.of(testUser));
+
+        userService.getUserByEmail("test@example.com");
+        UserResponse response = userService.getUserByEmail("test@example.com");
+        userService.getUserById(1L);
+
+        assertEquals(1L, response.getId());
+        verify(userRepository, times(1)).findByNormalizedEmail("test@example.com");
+        verify(userRepository, never()).findById(1L);
+    }
+
     @Test
     void getUserById_ShouldThrowException_WhenUserNotFound() {
         when(userRepository.findById(99L)).thenReturn(Optional.empty());
 
-        assertThrows(UserNotFoundException.class, () -> userService.getUserById(99L));
+        UserNotFoundException ex = assertThrows(UserNotFoundException.class, () -> userService.getUserById(99L));
+        assertEquals(0, ex.getStackTrace().length);
     }
 
     @Test
     void getUserByEmail_ShouldReturnUserResponse_WhenUserExists() {
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByNormalizedEmail("test@example.com")).thenReturn(Optional.of(testUser));
 
         UserResponse response = userService.getUserByEmail("test@example.com");
 
@@ -144,32 +465,187 @@ class UserServiceTest {
 
     @Test
     void getUserByEmail_ShouldThrowException_WhenUserNotFound() {
-        when(userRepository.findByEmail("unknown@example.com")).thenReturn(Optional.empty());
+        when(userRepository.findByNormalizedEmail("unknown@example.com")).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () -> userService.getUserByEmail("unknown@example.com"));
     }
 
+    @Test
+    void findUserVersion_ShouldUseCachedUser_AndOtherwiseQueryOnlyTheVersion() {
+        testUser.setVersion(2L);
+        when(userRepository.findVersionByNormalizedEmail("test@example.com")).thenReturn(Optional.of(new UserVersion(1L, 2L)));
+
+        assertEquals(Optional.of(new UserVersion(1L, 2L)), userService.findUserVersionByEmail("test@example.com"));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        userService.getUserById(1L);
+
+        assertEquals(Optional.of(new UserVersion(1L, 2L)), userService.findUserVersion(1L));
+        verify(userRepository, never()).findByNormalizedEmail(anyString());
+        verify(userRepository, never()).findVersionById(anyLong());
+    }
+
+    @Test
+    void getUsersByIds_ShouldReportMissingIds_AndOnlyQueryCacheMisses() {
+        User other = new User(2L, "other@example.com", "encodedPassword", "Jane", "Roe", Role.SELLER);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(other));
+
+        userService.getUserById(1L);
+        UserBatchResponse response = userService.getUsersByIds(List.of(1L, 2L, 3L, 2L));
+
+        assertEquals(List.of(1L, 2L), List.copyOf(response.getUsers().keySet()));
+        assertEquals("other@example.com", response.getUsers().get(2L).getEmail());
+        assertEquals(List.of(3L), response.getMissing());
+        verify(userRepository).findAllById(List.of(2L, 3L));
+    }
+
+    @Test
+    void getUsersByIds_ShouldChunkLargeInputs() {
+        List<Long> ids = LongStream.rangeClosed(1, 1000).boxed().toList();
+        when(userRepository.findAllById(anyList())).thenReturn(List.of());
+
+        UserBatchResponse response = userService.getUsersByIds(ids);
+
+        assertEquals(1000, response.getMissing().size());
+        verify(userRepository, times(2)).findAllById(anyList());
+    }
+
+    @Test
+    void getUsersByIds_ShouldRejectTooManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(ids));
+        verify(userRepository, never()).findAllById(anyList());
+    }
+
     @Test
     void updateUser_ShouldReturnUpdatedUserResponse() {
         RegisterRequest updateRequest = new RegisterRequest("updated@example.com", "newpass", "Jane", "Smith", Role.SELLER);
-        User updatedUser = new User();
-        updatedUser.setId(1L);
-        updatedUser.setEmail("updated@example.com");
-        updatedUser.setPassword("encodedNewPass");
-        updatedUser.setFirstName("Jane");
-        updatedUser.setLastName("Smith");
-        updatedUser.setRole(Role.SELLER);
-        updatedUser.setCreatedAt(LocalDateTime.now());
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.existsByEmail("updated@example.com")).thenReturn(false);
-        when(passwordEncoder.encode("newpass")).thenReturn("encodedNewPass");
-        when(userRepository.save(any(User.class))).thenReturn(updatedUser);
+        when(passwordHasher.encode("newpass")).thenReturn("encodedNewPass");
 
         UserResponse response = userService.updateUser(1L, updateRequest);
 
         assertNotNull(response);
         assertEquals("updated@example.com", response.getEmail());
         assertEquals("Jane", response.getFirstName());
+        assertEquals("encodedNewPass", testUser.getPassword());
+        verify(userRepository).flush();
+        verify(userRepository, never()).existsByNormalizedEmail(anyString());
+        verify(userRepository, never()).save(any(User.class));
+        InOrder order = inOrder(passwordHasher, transactionManager);
+        order.verify(passwordHasher).encode("newpass");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void updateUser_ShouldThrowException_WhenNewEmailTaken() {
+        RegisterRequest updateRequest = new RegisterRequest("taken@example.com", null, null, null, null);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        doThrow(emailConstraintViolation()).when(userRepository).flush();
+
+        assertThrows(UserAlreadyExistsException.class, () -> userService.updateUser(1L, updateRequest));
+        verify(userCache, never()).invalidate(anyLong(), any(String[].class));
+    }
+
+    @Test
+    void updateUser_ShouldInvalidateCachedUser_WhenEmailChanges() {
+        RegisterRequest updateRequest = new RegisterRequest("updated@example.com", null, null, null, null);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findByNormalizedEmail("test@example.com"))
+                .thenReturn(Optional.of(testUser))
+                .thenReturn(Optional.empty());
+
+        userService.getUserByEmail("test@example.com");
+        userService.updateUser(1L, updateRequest);
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByEmail("test@example.com"));
+        verify(userCache).invalidate(1L, "test@example.com", "updated@example.com");
+        verify(registeredEmails).add("updated@example.com");
+        verify(searchIndex).update(1L, "test@example.com", "John", "Doe", "updated@example.com", "John", "Doe");
+        verify(profileVersions).recordChange(1L, 0L);
+        verify(changeEvents).save(argThat(event -> event.getType() == UserChangeEvent.Type.UPDATED
+                && "updated@example.com".equals(event.getEmail())
+                && "test@example.com".equals(event.getPreviousEmail())));
+    }
+
+    @Test
+    void patchUser_ShouldOnlyChangeFieldsPresentInPatch() {
+        UserPatchRequest patch = new UserPatchRequest();
+        patch.setLastName(null);
+        patch.setRole(Role.SELLER);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        UserResponse response = userService.patchUser(1L, patch, Set.of(0L));
+
+        assertEquals("test@example.com", response.getEmail());
+        assertEquals("John", response.getFirstName());
+        assertNull(response.getLastName());
+        assertEquals(Role.SELLER, response.getRole());
+        assertEquals("encodedPassword", testUser.getPassword());
+        verify(userRepository).flush();
+        verifyNoInteractions(passwordHasher);
+        verify(searchIndex).update(1L, "test@example.com", "John", "Doe", "test@example.com", "John", null);
+    }
+
+    @Test
+    void patchUser_ShouldFailPrecondition_WhenVersionIsNotAccepted() {
+        UserPatchRequest patch = new UserPatchRequest();
+        patch.setFirstName("Jane");
+        testUser.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        assertThrows(PreconditionFailedException.class, () -> userService.patchUser(1L, patch, Set.of(2L)));
+        assertEquals("John", testUser.getFirstName());
+        verify(userRepository, never()).flush();
+    }
+
+    @Test
+    void patchUser_ShouldFailPrecondition_WhenRowChangedConcurrently() {
+        UserPatchRequest patch = new UserPatchRequest();
+        patch.setFirstName("Jane");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        doThrow(new ObjectOptimisticLockingFailureException(User.class, 1L)).when(userRepository).flush();
+
+        assertThrows(PreconditionFailedException.class, () -> userService.patchUser(1L, patch, Set.of(0L)));
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userService.patchUser(1L, patch, null));
+        verify(changeEvents, never()).save(any());
+    }
+
+    @Test
+    void patchUser_ShouldRejectRemovingRequiredField() {
+        UserPatchRequest patch = new UserPatchRequest();
+        patch.setEmail(null);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(1L, patch, null));
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    private static DataIntegrityViolationException emailConstraintViolation() {
+        return new DataIntegrityViolationException("could not execute statement",
+                new IllegalStateException("Unique index or primary key violation: \"PUBLIC.UK_USERS_EMAIL_INDEX_4 ON PUBLIC.USERS(EMAIL NULLS FIRST)\""));
+    }
+
+    private void givenRegisteredUser() {
+        when(registeredEmails.mightContain("test@example.com")).thenReturn(true);
+        when(userRepository.findCredentialsByNormalizedEmail("test@example.com")).thenReturn(Optional.of(
+                new UserCredentials(1L, "test@example.com", "encodedPassword", Role.BUYER, "John", "Doe", 0L)));
+    }
+
+    private static Claims refreshClaims(String jti) {
+        return Jwts.claims()
+                .id(jti)
+                .subject("test@example.com")
+                .add(JwtService.USER_ID_CLAIM, 1L)
+                .add(JwtService.ROLE_CLAIM, Role.SELLER.name())
+                .add(JwtService.VERSION_CLAIM, 2L)
+                .add(JwtService.GIVEN_NAME_CLAIM, "John")
+                .add(JwtService.FAMILY_NAME_CLAIM, "Doe")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .build();
     }
 }